@@ -0,0 +1,220 @@
+/*
+ * Copyright 2000-2019 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.notification.tests;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.html.Div;
+import com.vaadin.flow.component.html.NativeButton;
+import com.vaadin.flow.component.html.Span;
+import com.vaadin.flow.component.notification.Notification;
+import com.vaadin.flow.router.BeforeEnterEvent;
+import com.vaadin.flow.router.BeforeEnterObserver;
+import com.vaadin.flow.router.Route;
+import com.vaadin.flow.shared.Registration;
+import com.vaadin.flow.shared.communication.PushMode;
+
+import elemental.json.Json;
+import elemental.json.JsonObject;
+
+/**
+ * Page opening notifications at a fixed rate, for measuring the cost of
+ * notifications on the server and in the browser. Used by
+ * {@code NotificationStressIT}. Not suitable for demos.
+ * <p>
+ * The run is configured with query parameters: {@code rate} notifications per
+ * second during {@code seconds} seconds, each shown for {@code duration}
+ * milliseconds, with {@code mode=text} or {@code mode=component} content,
+ * opened from request threads ({@code source=request}, driven by polling) or
+ * from a background thread with push ({@code source=background}). When the
+ * run ends, the server measurements are written as JSON into the
+ * {@code stress-result} element.
+ *
+ * @author Vaadin Ltd.
+ */
+@Route("notification-stress")
+public class NotificationStressPage extends Div implements BeforeEnterObserver {
+
+    private static final int TICKS_PER_SECOND = 10;
+    private static final int TICK_MILLIS = 1000 / TICKS_PER_SECOND;
+
+    private final NativeButton start = new NativeButton("Start",
+            event -> start());
+    private final Span result = new Span();
+
+    private int rate = 50;
+    private int seconds = 10;
+    private int duration = 2000;
+    private boolean components;
+    private boolean background;
+
+    private int tick;
+    private int opened;
+    private boolean running;
+    private long startNanos;
+    private long startCpuNanos;
+    private long startHeap;
+    private long peakHeap;
+    private long startGcCount;
+    private Registration pollRegistration;
+    private transient ScheduledExecutorService executor;
+
+    public NotificationStressPage() {
+        start.setId("stress-start");
+        result.setId("stress-result");
+        add(start, result);
+        // Leaving the page or closing the UI ends a run in progress
+        addDetachListener(event -> {
+            running = false;
+            stopExecutor();
+        });
+    }
+
+    @Override
+    public void beforeEnter(BeforeEnterEvent event) {
+        Map<String, List<String>> parameters = event.getLocation()
+                .getQueryParameters().getParameters();
+        rate = getInt(parameters, "rate", rate);
+        seconds = getInt(parameters, "seconds", seconds);
+        duration = getInt(parameters, "duration", duration);
+        components = "component".equals(getString(parameters, "mode"));
+        background = "background".equals(getString(parameters, "source"));
+    }
+
+    private void start() {
+        start.setEnabled(false);
+        UI ui = UI.getCurrent();
+        startNanos = System.nanoTime();
+        startCpuNanos = getProcessCpuNanos();
+        startHeap = getUsedHeap();
+        peakHeap = startHeap;
+        startGcCount = getGcCount();
+        running = true;
+        if (background) {
+            ui.getPushConfiguration().setPushMode(PushMode.AUTOMATIC);
+            executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "notification-stress");
+                thread.setDaemon(true);
+                return thread;
+            });
+            executor.scheduleAtFixedRate(() -> ui.access(this::tick),
+                    TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+        } else {
+            ui.setPollInterval(TICK_MILLIS);
+            pollRegistration = ui.addPollListener(event -> tick());
+        }
+    }
+
+    private void tick() {
+        if (!running) {
+            return;
+        }
+        // Spreads the remainder so that the total matches the rate
+        int count = rate * (tick + 1) / TICKS_PER_SECOND
+                - rate * tick / TICKS_PER_SECOND;
+        for (int i = 0; i < count; i++) {
+            createNotification(opened++).open();
+        }
+        tick++;
+        peakHeap = Math.max(peakHeap, getUsedHeap());
+        if (tick >= seconds * TICKS_PER_SECOND) {
+            finish();
+        }
+    }
+
+    private Notification createNotification(int index) {
+        if (components) {
+            Notification notification = new Notification(
+                    new Span("Notification " + index));
+            notification.add(
+                    new NativeButton("Close", event -> notification.close()));
+            notification.setDuration(duration);
+            return notification;
+        }
+        return new Notification("Notification " + index, duration);
+    }
+
+    private void finish() {
+        running = false;
+        stopExecutor();
+        if (pollRegistration != null) {
+            pollRegistration.remove();
+            pollRegistration = null;
+            UI.getCurrent().setPollInterval(-1);
+        }
+        long cpuNanos = getProcessCpuNanos();
+
+        JsonObject json = Json.createObject();
+        json.put("opened", opened);
+        json.put("elapsedMillis", TimeUnit.NANOSECONDS
+                .toMillis(System.nanoTime() - startNanos));
+        json.put("cpuMillis", cpuNanos < 0 || startCpuNanos < 0 ? -1
+                : TimeUnit.NANOSECONDS.toMillis(cpuNanos - startCpuNanos));
+        json.put("heapStartBytes", startHeap);
+        json.put("heapPeakBytes", peakHeap);
+        json.put("heapEndBytes", getUsedHeap());
+        json.put("gcCount", getGcCount() - startGcCount);
+        result.setText(json.toJson());
+    }
+
+    private void stopExecutor() {
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+    }
+
+    private static long getProcessCpuNanos() {
+        OperatingSystemMXBean bean = ManagementFactory
+                .getOperatingSystemMXBean();
+        if (bean instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) bean)
+                    .getProcessCpuTime();
+        }
+        return -1;
+    }
+
+    private static long getUsedHeap() {
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage()
+                .getUsed();
+    }
+
+    private static long getGcCount() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .mapToLong(GarbageCollectorMXBean::getCollectionCount)
+                .filter(count -> count > 0).sum();
+    }
+
+    private static String getString(Map<String, List<String>> parameters,
+            String name) {
+        List<String> values = parameters.get(name);
+        return values == null || values.isEmpty() ? null : values.get(0);
+    }
+
+    private static int getInt(Map<String, List<String>> parameters,
+            String name, int defaultValue) {
+        String value = getString(parameters, name);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+}
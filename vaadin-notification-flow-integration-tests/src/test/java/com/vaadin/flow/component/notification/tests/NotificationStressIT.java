@@ -0,0 +1,193 @@
+/*
+ * Copyright 2000-2019 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.notification.tests;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebElement;
+
+import com.vaadin.flow.testutil.AbstractComponentIT;
+import com.vaadin.flow.testutil.TestPath;
+
+import elemental.json.Json;
+import elemental.json.JsonObject;
+
+/**
+ * Measures how many notifications per second the server and the browser can
+ * handle, using {@link NotificationStressPage}.
+ * <p>
+ * Skipped unless the {@value #ENABLED_PROPERTY} system property is
+ * {@code true}, for example
+ * {@code mvn verify -Dit.test=NotificationStressIT -Dnotification.stress=true}.
+ * Each scenario is run for the comma separated rates in
+ * {@value #RATES_PROPERTY} during {@value #SECONDS_PROPERTY} seconds, and one
+ * row per run is appended to the Markdown report in
+ * {@value #REPORT_PROPERTY}. The server figures include everything running in
+ * the server JVM. UIDL sizes are counted in characters received by the
+ * browser, over XHR and push.
+ */
+@TestPath("notification-stress")
+public class NotificationStressIT extends AbstractComponentIT {
+
+    private static final String ENABLED_PROPERTY = "notification.stress";
+    private static final String RATES_PROPERTY = "notification.stress.rates";
+    private static final String SECONDS_PROPERTY = "notification.stress.seconds";
+    private static final String REPORT_PROPERTY = "notification.stress.report";
+
+    private static final String REPORT_HEADER = "| Scenario | Rate/s | Opened | Elapsed ms | Server CPU ms | CPU ms/notification | Heap peak MB | GCs | UIDL messages | UIDL KB | Frames | Mean frame ms | p95 frame ms | Max frame ms | Long tasks |\n"
+            + "|---|---|---|---|---|---|---|---|---|---|---|---|---|---|---|\n";
+
+    /**
+     * Records frame intervals, long tasks and the size of UIDL messages
+     * received over XHR and WebSocket. Installed before starting, so that the
+     * push connection opened by the run is also counted.
+     */
+    private static final String INSTRUMENT_SCRIPT = "var s = window.notificationStress = {frames: [], uidlMessages: 0, uidlChars: 0, longTasks: 0};"
+            + "var count = function(text) { s.uidlMessages++; s.uidlChars += text.length; };"
+            + "var last = performance.now();"
+            + "requestAnimationFrame(function frame(now) {"
+            + "  s.frames.push(now - last); last = now;"
+            + "  if (!s.stopped) { requestAnimationFrame(frame); }"
+            + "});"
+            + "if (window.PerformanceObserver && PerformanceObserver.supportedEntryTypes"
+            + "    && PerformanceObserver.supportedEntryTypes.indexOf('longtask') >= 0) {"
+            + "  new PerformanceObserver(function(list) { s.longTasks += list.getEntries().length; })"
+            + "      .observe({entryTypes: ['longtask']});"
+            + "}"
+            + "var open = XMLHttpRequest.prototype.open;"
+            + "XMLHttpRequest.prototype.open = function(method, url) {"
+            + "  if (String(url).indexOf('v-r=uidl') >= 0) {"
+            + "    this.addEventListener('load', function() { count(this.responseText); });"
+            + "  }"
+            + "  return open.apply(this, arguments);"
+            + "};"
+            + "var NativeWebSocket = window.WebSocket;"
+            + "window.WebSocket = function(url, protocols) {"
+            + "  var socket = protocols === undefined ? new NativeWebSocket(url) : new NativeWebSocket(url, protocols);"
+            + "  socket.addEventListener('message', function(e) { if (typeof e.data === 'string') { count(e.data); } });"
+            + "  return socket;"
+            + "};"
+            + "window.WebSocket.prototype = NativeWebSocket.prototype;"
+            + "['CONNECTING', 'OPEN', 'CLOSING', 'CLOSED'].forEach(function(key) { window.WebSocket[key] = NativeWebSocket[key]; });";
+
+    private static final String COLLECT_SCRIPT = "var s = window.notificationStress; s.stopped = true;"
+            + "var frames = s.frames.slice(1).sort(function(a, b) { return a - b; });"
+            + "var sum = frames.reduce(function(a, b) { return a + b; }, 0);"
+            + "return JSON.stringify({"
+            + "  uidlMessages: s.uidlMessages, uidlChars: s.uidlChars, longTasks: s.longTasks,"
+            + "  frames: frames.length,"
+            + "  meanFrame: frames.length ? sum / frames.length : 0,"
+            + "  p95Frame: frames.length ? frames[Math.floor(frames.length * 0.95)] : 0,"
+            + "  maxFrame: frames.length ? frames[frames.length - 1] : 0"
+            + "});";
+
+    @Before
+    public void checkEnabled() {
+        Assume.assumeTrue("Stress tests are only run with -D"
+                + ENABLED_PROPERTY + "=true",
+                Boolean.getBoolean(ENABLED_PROPERTY));
+    }
+
+    @Test
+    public void textFromRequestThreads() throws IOException {
+        runScenario("text", "request");
+    }
+
+    @Test
+    public void componentsFromRequestThreads() throws IOException {
+        runScenario("component", "request");
+    }
+
+    @Test
+    public void textFromBackgroundThreads() throws IOException {
+        runScenario("text", "background");
+    }
+
+    @Test
+    public void componentsFromBackgroundThreads() throws IOException {
+        runScenario("component", "background");
+    }
+
+    private void runScenario(String mode, String source) throws IOException {
+        int seconds = Integer.getInteger(SECONDS_PROPERTY, 10);
+        for (int rate : getRates()) {
+            open("rate=" + rate, "seconds=" + seconds, "mode=" + mode,
+                    "source=" + source);
+            JavascriptExecutor executor = (JavascriptExecutor) getDriver();
+            executor.executeScript(INSTRUMENT_SCRIPT);
+
+            findElement(By.id("stress-start")).click();
+            WebElement result = findElement(By.id("stress-result"));
+            waitUntil(driver -> !result.getText().isEmpty(), seconds + 60);
+
+            JsonObject server = Json.parse(result.getText());
+            JsonObject client = Json.parse(
+                    (String) executor.executeScript(COLLECT_SCRIPT));
+            Assert.assertEquals(rate * seconds,
+                    (int) server.getNumber("opened"));
+            appendReport(mode + " from " + source + " threads", rate, server,
+                    client);
+        }
+    }
+
+    private static List<Integer> getRates() {
+        String rates = System.getProperty(RATES_PROPERTY, "10,50,200");
+        return Arrays.stream(rates.split(",")).map(String::trim)
+                .map(Integer::valueOf).collect(Collectors.toList());
+    }
+
+    private static void appendReport(String scenario, int rate,
+            JsonObject server, JsonObject client) throws IOException {
+        Path report = Paths.get(System.getProperty(REPORT_PROPERTY,
+                "target/notification-stress-report.md"));
+        if (!Files.exists(report)) {
+            if (report.getParent() != null) {
+                Files.createDirectories(report.getParent());
+            }
+            Files.write(report, REPORT_HEADER.getBytes(StandardCharsets.UTF_8));
+        }
+        double opened = server.getNumber("opened");
+        double cpuMillis = server.getNumber("cpuMillis");
+        String row = String.format(
+                "| %s | %d | %.0f | %.0f | %.0f | %.3f | %.1f | %.0f | %.0f | %.1f | %.0f | %.1f | %.1f | %.1f | %.0f |",
+                scenario, rate, opened, server.getNumber("elapsedMillis"),
+                cpuMillis, opened > 0 && cpuMillis >= 0 ? cpuMillis / opened
+                        : -1,
+                server.getNumber("heapPeakBytes") / (1024 * 1024),
+                server.getNumber("gcCount"), client.getNumber("uidlMessages"),
+                client.getNumber("uidlChars") / 1024,
+                client.getNumber("frames"), client.getNumber("meanFrame"),
+                client.getNumber("p95Frame"), client.getNumber("maxFrame"),
+                client.getNumber("longTasks"));
+        Files.write(report, Collections.singletonList(row),
+                StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+    }
+}
@@ -15,6 +15,7 @@
  */
 package com.vaadin.flow.component.notification.tests;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -22,8 +23,11 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
 import org.openqa.selenium.WebElement;
 
+import com.vaadin.flow.component.notification.testbench.NotificationElement;
+import com.vaadin.flow.component.notification.testbench.NotificationSnapshot;
 import com.vaadin.flow.testutil.AbstractComponentIT;
 import com.vaadin.flow.testutil.TestPath;
 
@@ -68,6 +72,52 @@ public class NotificationTestPageIT extends AbstractComponentIT {
                         .anyMatch(text -> text.contains("2222222")));
     }
 
+    @Test
+    public void twoNotificationAtOnce_snapshotAll() {
+        findElement(By.id("notification-button-1")).click();
+        findElement(By.id("notification-button-2")).click();
+        checkNotificationIsOpen();
+
+        List<NotificationSnapshot> open = NotificationElement
+                .snapshotAll((JavascriptExecutor) getDriver()).stream()
+                .filter(NotificationSnapshot::isOpen)
+                .collect(Collectors.toList());
+        Assert.assertEquals(2, open.size());
+        Assert.assertTrue(open.stream().allMatch(
+                snapshot -> snapshot.getDuration() == 4000));
+        Assert.assertTrue(open.stream().anyMatch(
+                snapshot -> snapshot.getText().contains("1111111")));
+        Assert.assertTrue(open.stream().anyMatch(
+                snapshot -> snapshot.getText().contains("2222222")));
+    }
+
+    @Test
+    public void notificationWithButtonControl_snapshot() {
+        NotificationElement notification = $(NotificationElement.class)
+                .id("notification-with-button-control");
+        Assert.assertFalse(notification.snapshot().isOpen());
+
+        findElement(By.id("notification-open")).click();
+        checkNotificationIsOpen();
+
+        NotificationSnapshot snapshot = notification.snapshot();
+        Assert.assertTrue(snapshot.isOpen());
+        Assert.assertTrue(snapshot.getText().contains("Hello World!"));
+        Assert.assertEquals(0, snapshot.getDuration());
+    }
+
+    @Test
+    public void twoNotificationAtOnce_waitForCount() {
+        findElement(By.id("notification-button-1")).click();
+        findElement(By.id("notification-button-2")).click();
+
+        NotificationElement.waitForCount((JavascriptExecutor) getDriver(), 2,
+                Duration.ofSeconds(5));
+        // Both notifications have a duration of four seconds
+        NotificationElement.waitForCount((JavascriptExecutor) getDriver(), 0,
+                Duration.ofSeconds(10));
+    }
+
     @Test
     public void notificationAddComponents() {
         findElement(By.id("open-notification-button-add")).click();
@@ -144,12 +194,8 @@ public class NotificationTestPageIT extends AbstractComponentIT {
         open.click();
         waitForElementPresent(By.id("notification-outside-ui"));
         checkNotificationIsOpen();
-        try {
-            // wait for the notification to disappear
-            Thread.sleep(5000);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-        }
+        $(NotificationElement.class).id("notification-outside-ui")
+                .waitUntilClosed(Duration.ofSeconds(10));
         checkNotificationIsClose();
         waitForElementNotPresent(By.id("notification-outside-ui"));
 
@@ -0,0 +1,321 @@
+/*
+ * Copyright 2000-2019 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.notification.simulator;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToIntFunction;
+
+import com.vaadin.flow.component.notification.Notification;
+import com.vaadin.flow.component.notification.NotificationDispatcher;
+
+/**
+ * Measures the server cost of notifications for a large number of UIs,
+ * without a servlet container or browsers.
+ * <p>
+ * Each UI has its own mock session. The simulation runs these phases, each
+ * reporting throughput, latency percentiles and response size:
+ * <ol>
+ * <li>showing notifications with {@link Notification#show(String)} in a
+ * request to each UI, and the client acknowledging them,</li>
+ * <li>broadcasting a notification to all UIs with a
+ * {@link NotificationDispatcher} on a fixed pool of platform threads, and on
+ * virtual threads when running on Java 21 or newer, followed by the pushed
+ * response and the client acknowledgement,</li>
+ * <li>the client closing all notifications when their duration expires.</li>
+ * </ol>
+ * Request latencies are measured from the start of handling the request,
+ * including waiting for the session lock, and broadcast latencies from
+ * submitting the delivery to the dispatcher. The heap used per UI is measured
+ * after creating the UIs and after showing the notifications. Response sizes
+ * are approximations, since the responses are encoded by the simulation
+ * rather than by {@code UidlWriter}.
+ * <p>
+ * Run with
+ * {@code mvn exec:java -Dexec.args="uis=100000 notifications=3 threads=8 delay=1"}
+ * in this module, with enough heap for the number of UIs, for example
+ * {@code MAVEN_OPTS=-Xmx8g}. Broadcast tasks sleep for {@code delay}
+ * milliseconds while holding the session lock, to simulate slow work done
+ * while delivering.
+ *
+ * @author Vaadin Ltd
+ */
+public class NotificationSimulator {
+
+    private final int uiCount;
+    private final int notificationsPerUi;
+    private final int threads;
+    private final int deliveryDelayMillis;
+
+    private long heapPerUiBytes;
+    private long heapPerUiWithNotificationsBytes;
+
+    /**
+     * Creates a simulator.
+     *
+     * @param uiCount
+     *            the number of UIs to simulate
+     * @param notificationsPerUi
+     *            the number of notifications shown in each UI
+     * @param threads
+     *            the number of threads handling requests, and broadcasting
+     *            with platform threads
+     * @param deliveryDelayMillis
+     *            the time each broadcast delivery holds the session lock, in
+     *            milliseconds
+     */
+    public NotificationSimulator(int uiCount, int notificationsPerUi,
+            int threads, int deliveryDelayMillis) {
+        if (uiCount <= 0 || notificationsPerUi < 0 || threads <= 0
+                || deliveryDelayMillis < 0) {
+            throw new IllegalArgumentException(
+                    "The number of UIs and threads must be positive, and the other values cannot be negative");
+        }
+        this.uiCount = uiCount;
+        this.notificationsPerUi = notificationsPerUi;
+        this.threads = threads;
+        this.deliveryDelayMillis = deliveryDelayMillis;
+    }
+
+    /**
+     * Runs the simulation.
+     *
+     * @return the results of the phases, in the order they were run
+     * @throws InterruptedException
+     *             if interrupted while waiting for a phase to complete
+     */
+    public List<PhaseResult> run() throws InterruptedException {
+        List<PhaseResult> results = new ArrayList<>();
+        long baseHeap = getUsedHeapAfterGc();
+
+        PhaseResult create = new PhaseResult("create UI", uiCount);
+        List<SimulatedUI> uis = new ArrayList<>(uiCount);
+        long start = System.nanoTime();
+        for (int i = 0; i < uiCount; i++) {
+            long created = System.nanoTime();
+            uis.add(new SimulatedUI());
+            create.record(System.nanoTime() - created, 0);
+        }
+        create.setElapsedNanos(System.nanoTime() - start);
+        results.add(create);
+        heapPerUiBytes = (getUsedHeapAfterGc() - baseHeap) / uiCount;
+
+        ExecutorService workers = Executors.newFixedThreadPool(threads,
+                createThreadFactory("simulator-worker"));
+        try {
+            results.add(runPhase("show", uis, workers, ui -> ui.request(() -> {
+                for (int i = 0; i < notificationsPerUi; i++) {
+                    Notification.show("Message " + i);
+                }
+            })));
+            results.add(runPhase("acknowledge", uis, workers,
+                    SimulatedUI::acknowledge));
+            heapPerUiWithNotificationsBytes = (getUsedHeapAfterGc()
+                    - baseHeap) / uiCount;
+
+            ExecutorService platform = Executors.newFixedThreadPool(threads,
+                    createThreadFactory("simulator-dispatcher"));
+            try {
+                results.addAll(runBroadcast("platform threads", uis, workers,
+                        new NotificationDispatcher(platform, 1)));
+            } finally {
+                platform.shutdownNow();
+            }
+            ExecutorService virtual = createVirtualThreadExecutor();
+            if (virtual != null) {
+                try {
+                    results.addAll(runBroadcast("virtual threads", uis,
+                            workers, new NotificationDispatcher(virtual, 1)));
+                } finally {
+                    virtual.shutdownNow();
+                }
+            }
+
+            results.add(runPhase("expire", uis, workers, SimulatedUI::expire));
+        } finally {
+            workers.shutdownNow();
+        }
+        return results;
+    }
+
+    /**
+     * Gets the heap used per UI after creating the UIs, measured by the last
+     * {@link #run()}.
+     *
+     * @return the heap in bytes
+     */
+    public long getHeapPerUiBytes() {
+        return heapPerUiBytes;
+    }
+
+    /**
+     * Gets the heap used per UI while the notifications are shown, measured
+     * by the last {@link #run()}.
+     *
+     * @return the heap in bytes
+     */
+    public long getHeapPerUiWithNotificationsBytes() {
+        return heapPerUiWithNotificationsBytes;
+    }
+
+    private PhaseResult runPhase(String name, List<SimulatedUI> uis,
+            ExecutorService workers, ToIntFunction<SimulatedUI> operation)
+            throws InterruptedException {
+        PhaseResult result = new PhaseResult(name, uis.size());
+        List<CompletableFuture<Void>> futures = new ArrayList<>(uis.size());
+        long start = System.nanoTime();
+        for (SimulatedUI ui : uis) {
+            // Requests arrive all at once, so only the handling is timed
+            futures.add(CompletableFuture.runAsync(() -> {
+                long started = System.nanoTime();
+                int length = operation.applyAsInt(ui);
+                result.record(System.nanoTime() - started, length);
+            }, workers));
+        }
+        await(futures);
+        result.setElapsedNanos(System.nanoTime() - start);
+        return result;
+    }
+
+    private List<PhaseResult> runBroadcast(String name, List<SimulatedUI> uis,
+            ExecutorService workers, NotificationDispatcher dispatcher)
+            throws InterruptedException {
+        List<PhaseResult> results = new ArrayList<>();
+        PhaseResult broadcast = new PhaseResult("broadcast, " + name,
+                uis.size());
+        List<CompletableFuture<Void>> futures = new ArrayList<>(uis.size());
+        long start = System.nanoTime();
+        for (SimulatedUI ui : uis) {
+            long submitted = System.nanoTime();
+            futures.add(dispatcher.dispatch(ui.getUI(), target -> {
+                sleep(deliveryDelayMillis);
+                Notification.show("Broadcast");
+            }).thenRun(() -> broadcast
+                    .record(System.nanoTime() - submitted, 0)));
+        }
+        await(futures);
+        broadcast.setElapsedNanos(System.nanoTime() - start);
+        results.add(broadcast);
+        results.add(runPhase("push, " + name, uis, workers,
+                ui -> ui.request(() -> {
+                })));
+        results.add(runPhase("acknowledge, " + name, uis, workers,
+                SimulatedUI::acknowledge));
+        return results;
+    }
+
+    private static void await(List<CompletableFuture<Void>> futures)
+            throws InterruptedException {
+        try {
+            CompletableFuture
+                    .allOf(futures.toArray(new CompletableFuture[0])).get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Simulated operation failed",
+                    e.getCause());
+        }
+    }
+
+    private static void sleep(int millis) {
+        if (millis == 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static long getUsedHeapAfterGc() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage()
+                .getUsed();
+    }
+
+    private static ThreadFactory createThreadFactory(String name) {
+        AtomicInteger threadCount = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable,
+                    name + "-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static ExecutorService createVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            // Virtual threads are not available before Java 21
+            return null;
+        }
+    }
+
+    /**
+     * Runs the simulation and prints the results.
+     *
+     * @param args
+     *            optional {@code key=value} arguments: {@code uis},
+     *            {@code notifications}, {@code threads} and {@code delay}
+     * @throws InterruptedException
+     *             if interrupted while running
+     */
+    public static void main(String[] args) throws InterruptedException {
+        Map<String, String> arguments = new HashMap<>();
+        for (String arg : args) {
+            String[] parts = arg.split("=", 2);
+            if (parts.length != 2) {
+                throw new IllegalArgumentException(
+                        "Arguments should be given as key=value: " + arg);
+            }
+            arguments.put(parts[0], parts[1]);
+        }
+        int uis = Integer.parseInt(arguments.getOrDefault("uis", "10000"));
+        int notifications = Integer
+                .parseInt(arguments.getOrDefault("notifications", "3"));
+        int threads = Integer.parseInt(arguments.getOrDefault("threads",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+        int delay = Integer.parseInt(arguments.getOrDefault("delay", "1"));
+
+        System.out.printf(
+                "Simulating %d UIs, %d notifications per UI, %d threads, %d ms delivery delay on Java %s with %d MB max heap%n",
+                uis, notifications, threads, delay,
+                System.getProperty("java.version"),
+                Runtime.getRuntime().maxMemory() / (1024 * 1024));
+        NotificationSimulator simulator = new NotificationSimulator(uis,
+                notifications, threads, delay);
+        List<PhaseResult> results = simulator.run();
+        results.forEach(System.out::println);
+        System.out.println(
+                "~ Response sizes approximate the UIDL encoding and leave out sync ids, meta data and dependencies");
+        System.out.printf("Heap per UI: %d bytes, %d bytes with notifications%n",
+                simulator.getHeapPerUiBytes(),
+                simulator.getHeapPerUiWithNotificationsBytes());
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2000-2019 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.notification.simulator;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measurements of one phase of a simulation: the latency of each operation,
+ * the total time and the size of the responses.
+ *
+ * @author Vaadin Ltd
+ */
+public class PhaseResult {
+
+    private final String name;
+    private final long[] latencies;
+    private final AtomicInteger count = new AtomicInteger();
+    private final AtomicLong responseChars = new AtomicLong();
+    private long elapsedNanos;
+
+    PhaseResult(String name, int capacity) {
+        this.name = name;
+        latencies = new long[capacity];
+    }
+
+    void record(long latencyNanos, int responseLength) {
+        int index = count.getAndIncrement();
+        if (index < latencies.length) {
+            latencies[index] = latencyNanos;
+        }
+        responseChars.addAndGet(responseLength);
+    }
+
+    void setElapsedNanos(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+        Arrays.sort(latencies, 0, getCount());
+    }
+
+    /**
+     * Gets the name of the phase.
+     *
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the number of operations run in the phase.
+     *
+     * @return the number of operations
+     */
+    public int getCount() {
+        return Math.min(count.get(), latencies.length);
+    }
+
+    /**
+     * Gets the number of operations per second.
+     *
+     * @return the throughput
+     */
+    public double getThroughput() {
+        return elapsedNanos == 0 ? 0
+                : getCount() * (double) TimeUnit.SECONDS.toNanos(1)
+                        / elapsedNanos;
+    }
+
+    /**
+     * Gets the latency of an operation at the given percentile.
+     *
+     * @param percentile
+     *            the percentile, between 0 and 100
+     * @return the latency in milliseconds
+     */
+    public double getLatencyMillis(double percentile) {
+        int size = getCount();
+        if (size == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100 * size) - 1;
+        return latencies[Math.max(0, Math.min(size - 1, index))] / 1e6;
+    }
+
+    /**
+     * Gets the total length of the responses in characters. The responses
+     * approximate the UIDL a server would write, see {@link SimulatedUI}, so
+     * the length is an estimate.
+     *
+     * @return the approximate response length
+     */
+    public long getResponseChars() {
+        return responseChars.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "%-22s %9d ops %10.0f ops/s   p50 %8.3f ms   p99 %8.3f ms   p99.9 %8.3f ms   max %8.3f ms   ~%8.1f chars/op",
+                name, getCount(), getThroughput(), getLatencyMillis(50),
+                getLatencyMillis(99), getLatencyMillis(99.9),
+                getLatencyMillis(100), getCount() == 0 ? 0
+                        : getResponseChars() / (double) getCount());
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2000-2019 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.notification.simulator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.internal.UIInternals;
+import com.vaadin.flow.component.notification.Notification;
+import com.vaadin.flow.component.notification.testsupport.MockVaadinSession;
+import com.vaadin.flow.dom.DomEvent;
+import com.vaadin.flow.internal.ConstantPool;
+import com.vaadin.flow.internal.JsonCodec;
+import com.vaadin.flow.internal.nodefeature.ElementListenerMap;
+import com.vaadin.flow.server.Command;
+
+import elemental.json.Json;
+import elemental.json.JsonArray;
+import elemental.json.JsonObject;
+
+/**
+ * A UI in its own session, together with the state of a simulated client.
+ * <p>
+ * Each request runs while holding the session lock and ends with a response
+ * that approximates the one {@code UidlWriter} writes: queued access tasks and
+ * {@code beforeClientResponse} callbacks are run, and the tree changes,
+ * constants and JavaScript invocations are serialized to JSON. The real
+ * writer needs a {@code VaadinService}, which the mock session does not have,
+ * so the sync id, the meta data and the frontend dependencies of a real
+ * response are left out and the sizes are a lower bound. The client
+ * acknowledges opened and closed notifications with {@code opened-changed}
+ * events in the following request.
+ *
+ * @author Vaadin Ltd
+ */
+class SimulatedUI {
+
+    private final MockVaadinSession session = new MockVaadinSession();
+    private final UI ui = new UI();
+
+    // Guarded by the session lock
+    private final Set<Notification> shown = Collections
+            .newSetFromMap(new IdentityHashMap<>());
+
+    SimulatedUI() {
+        session.lock();
+        try {
+            ui.getInternals().setSession(session);
+        } finally {
+            session.unlock();
+        }
+    }
+
+    UI getUI() {
+        return ui;
+    }
+
+    /**
+     * Handles a request running the given command.
+     *
+     * @param command
+     *            the command to run while holding the session lock
+     * @return the length of the response in characters
+     */
+    int request(Command command) {
+        int[] length = new int[1];
+        ui.accessSynchronously(() -> {
+            command.execute();
+            length[0] = respond();
+        });
+        return length[0];
+    }
+
+    /**
+     * Handles a request with the events the client sends after the previous
+     * response: an {@code opened-changed} event for each notification the
+     * client opened or closed.
+     *
+     * @return the length of the response in characters
+     */
+    int acknowledge() {
+        return request(() -> {
+            List<Notification> changed = new ArrayList<>();
+            Notification.getOpen(ui).stream()
+                    .filter(notification -> !shown.contains(notification))
+                    .forEach(changed::add);
+            shown.stream().filter(notification -> !notification.isOpened()
+                    || !notification.getUI().isPresent())
+                    .forEach(changed::add);
+            changed.forEach(notification -> {
+                if (!shown.remove(notification)) {
+                    shown.add(notification);
+                }
+                if (notification.getUI().isPresent()) {
+                    fireOpenedChanged(notification);
+                }
+            });
+        });
+    }
+
+    /**
+     * Handles a request where the client reports that all shown notifications
+     * have closed, as when their duration expires.
+     *
+     * @return the length of the response in characters
+     */
+    int expire() {
+        return request(() -> {
+            List<Notification> expired = new ArrayList<>(shown);
+            shown.clear();
+            expired.forEach(notification -> {
+                notification.getElement().setProperty("opened", false);
+                fireOpenedChanged(notification);
+            });
+        });
+    }
+
+    int getShownCount() {
+        int[] count = new int[1];
+        ui.accessSynchronously(() -> count[0] = shown.size());
+        return count[0];
+    }
+
+    private int respond() {
+        session.runPendingAccessTasks();
+        UIInternals internals = ui.getInternals();
+        internals.getStateTree().runExecutionsBeforeClientResponse();
+
+        ConstantPool constantPool = internals.getConstantPool();
+        JsonArray changes = Json.createArray();
+        internals.getStateTree().collectChanges(change -> changes
+                .set(changes.length(), change.toJson(constantPool)));
+
+        JsonArray execute = Json.createArray();
+        internals.dumpPendingJavaScriptInvocations().forEach(pending -> {
+            JsonArray invocation = Json.createArray();
+            pending.getInvocation().getParameters()
+                    .forEach(parameter -> invocation.set(invocation.length(),
+                            JsonCodec.encodeWithTypeInfo(parameter)));
+            invocation.set(invocation.length(),
+                    pending.getInvocation().getExpression());
+            execute.set(execute.length(), invocation);
+        });
+
+        JsonObject response = Json.createObject();
+        response.put("changes", changes);
+        if (constantPool.hasNewConstants()) {
+            response.put("constants", constantPool.dumpConstants());
+        }
+        if (execute.length() > 0) {
+            response.put("execute", execute);
+        }
+        return response.toJson().length();
+    }
+
+    private static void fireOpenedChanged(Notification notification) {
+        notification.getElement().getNode()
+                .getFeature(ElementListenerMap.class)
+                .fireEvent(new DomEvent(notification.getElement(),
+                        "opened-changed", Json.createObject()));
+    }
+}
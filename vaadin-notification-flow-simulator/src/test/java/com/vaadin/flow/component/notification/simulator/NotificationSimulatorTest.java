@@ -0,0 +1,55 @@
+/*
+ * Copyright 2000-2019 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.notification.simulator;
+
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.vaadin.flow.component.notification.Notification;
+
+public class NotificationSimulatorTest {
+
+    @Test
+    public void run_allPhasesCoverAllUis() throws InterruptedException {
+        List<PhaseResult> results = new NotificationSimulator(20, 2, 4, 0)
+                .run();
+
+        Assert.assertTrue(results.size() >= 6);
+        results.forEach(result -> Assert.assertEquals(result.getName(), 20,
+                result.getCount()));
+        PhaseResult show = results.get(1);
+        Assert.assertEquals("show", show.getName());
+        Assert.assertTrue(show.getResponseChars() > 0);
+        Assert.assertTrue(
+                show.getLatencyMillis(50) <= show.getLatencyMillis(100));
+    }
+
+    @Test
+    public void requestAndAcknowledge_notificationsShownAndClosed() {
+        SimulatedUI ui = new SimulatedUI();
+
+        ui.request(() -> Notification.show("foo"));
+        ui.acknowledge();
+        Assert.assertEquals(1, ui.getShownCount());
+        Assert.assertEquals(1, Notification.getOpenCount(ui.getUI()));
+
+        ui.expire();
+        Assert.assertEquals(0, ui.getShownCount());
+        Assert.assertEquals(0, Notification.getOpenCount(ui.getUI()));
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2000-2019 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.notification.testsupport;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.vaadin.flow.server.Command;
+import com.vaadin.flow.server.FutureAccess;
+import com.vaadin.flow.server.VaadinSession;
+
+/**
+ * Session for running notifications without a servlet container.
+ * <p>
+ * The session has no {@link com.vaadin.flow.server.VaadinService}. Tasks
+ * passed to {@link #access(Command)}, for example through
+ * {@link com.vaadin.flow.component.UI#access(Command)}, are queued and only run
+ * by {@link #runPendingAccessTasks()}, like a service runs them when a request
+ * for the session completes.
+ *
+ * @author Vaadin Ltd
+ */
+public class MockVaadinSession extends VaadinSession {
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Creates a new session without a service.
+     */
+    public MockVaadinSession() {
+        super(null);
+    }
+
+    @Override
+    public Lock getLockInstance() {
+        return lock;
+    }
+
+    @Override
+    public void lock() {
+        lock.lock();
+    }
+
+    @Override
+    public void unlock() {
+        checkHasLock();
+        // No service to purge the access queue with, see runPendingAccessTasks
+        lock.unlock();
+    }
+
+    @Override
+    public Future<Void> access(Command command) {
+        FutureAccess future = new FutureAccess(this, command);
+        getPendingAccessQueue().add(future);
+        return future;
+    }
+
+    /**
+     * Runs the tasks queued with {@link #access(Command)}, including tasks
+     * queued by the tasks themselves. Must be called while holding the lock of
+     * this session.
+     *
+     * @return the number of tasks run
+     * @throws IllegalStateException
+     *             if a task failed
+     */
+    public int runPendingAccessTasks() {
+        checkHasLock();
+        int count = 0;
+        FutureAccess pending;
+        while ((pending = getPendingAccessQueue().poll()) != null) {
+            pending.run();
+            count++;
+            try {
+                pending.get();
+            } catch (CancellationException e) {
+                // Cancelled before it was run, nothing to report
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Access task failed",
+                        e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+        return count;
+    }
+}
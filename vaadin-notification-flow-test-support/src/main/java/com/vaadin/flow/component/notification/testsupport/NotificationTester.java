@@ -0,0 +1,385 @@
+/*
+ * Copyright 2000-2019 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.notification.testsupport;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+import org.jsoup.Jsoup;
+
+import com.vaadin.flow.component.Component;
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.notification.Notification;
+import com.vaadin.flow.dom.DomEvent;
+import com.vaadin.flow.dom.Element;
+import com.vaadin.flow.internal.nodefeature.ElementListenerMap;
+import com.vaadin.flow.server.VaadinSession;
+
+import elemental.json.Json;
+import elemental.json.JsonArray;
+import elemental.json.JsonObject;
+
+/**
+ * Drives notifications of a UI without a browser or a servlet container.
+ * <p>
+ * The tester creates a {@link UI} attached to a {@link MockVaadinSession},
+ * holds the session lock and sets both as current instances on the creating
+ * thread, so that test code runs like code handling a request. Background
+ * threads should use {@link UI#access(com.vaadin.flow.server.Command)}, the
+ * tasks are run on the next {@link #roundTrip()}.
+ * <p>
+ * {@link #roundTrip()} ends the simulated request: it runs the tasks queued
+ * for the session and the {@code beforeClientResponse} callbacks, and then
+ * updates the simulated client. Notifications opened in the response are
+ * shown on the client and acknowledged with an {@code opened-changed} event,
+ * like the web component does. The events of notifications whose UI has an
+ * {@link Notification#addOpenedChangeBatchListener opened change batch
+ * listener} are sent in one batched event on the UI instead. Time on the
+ * client is virtual and only moves with {@link #advanceTime(Duration)}, which
+ * closes notifications whose duration has expired. Timers on the server, such
+ * as piggyback windows or scheduled openings, still use real time.
+ * <p>
+ * The tester is not thread safe and should only be used from the thread that
+ * created it. Call {@link #close()} when done, typically in an
+ * {@code @After} method.
+ *
+ * @author Vaadin Ltd
+ */
+public class NotificationTester implements AutoCloseable {
+
+    private static final String OPENED_CHANGED_EVENT = "opened-changed";
+
+    private static final String LAZY_CLOSE_ATTRIBUTE = "lazy-close";
+    private static final String LAZY_CLOSED_EVENT = "vaadin-notification-lazy-closed";
+
+    private static final String OPENED_CHANGE_BATCH_ATTRIBUTE = "opened-change-batch";
+    private static final String OPENED_CHANGES_EVENT = "vaadin-notification-opened-changes";
+
+    private final MockVaadinSession session;
+    private final UI ui;
+    private final Map<Notification, Long> shown = new LinkedHashMap<>();
+    private List<String> javaScript = Collections.emptyList();
+    private long time;
+
+    /**
+     * Creates a tester with a new UI and session, and sets them as the current
+     * instances.
+     */
+    public NotificationTester() {
+        this(new UI());
+    }
+
+    /**
+     * Creates a tester for the given UI, attaching it to a new session, and
+     * sets them as the current instances.
+     *
+     * @param ui
+     *            a UI that is not attached to a session, not {@code null}
+     */
+    public NotificationTester(UI ui) {
+        this.ui = Objects.requireNonNull(ui, "UI should not be null");
+        session = new MockVaadinSession();
+        session.lock();
+        VaadinSession.setCurrent(session);
+        ui.getInternals().setSession(session);
+        UI.setCurrent(ui);
+    }
+
+    /**
+     * Gets the UI driven by this tester.
+     *
+     * @return the UI, not {@code null}
+     */
+    public UI getUI() {
+        return ui;
+    }
+
+    /**
+     * Gets the session of the UI driven by this tester.
+     *
+     * @return the session, not {@code null}
+     */
+    public MockVaadinSession getSession() {
+        return session;
+    }
+
+    /**
+     * Ends the current simulated request and lets the client process the
+     * response.
+     * <p>
+     * Runs the tasks queued with
+     * {@link UI#access(com.vaadin.flow.server.Command)} and the
+     * {@code beforeClientResponse} callbacks, collects the JavaScript
+     * invocations and changes that would be sent to the client, and then shows
+     * and acknowledges the notifications that were opened, and forgets the
+     * ones that were closed or removed on the server.
+     */
+    public void roundTrip() {
+        session.runPendingAccessTasks();
+        ui.getInternals().getStateTree().runExecutionsBeforeClientResponse();
+        javaScript = ui.getInternals().dumpPendingJavaScriptInvocations()
+                .stream()
+                .map(invocation -> invocation.getInvocation().getExpression())
+                .collect(Collectors.toList());
+        ui.getInternals().getStateTree().collectChanges(change -> {
+        });
+        updateClient();
+    }
+
+    private void updateClient() {
+        List<Notification> opened = new ArrayList<>();
+        List<Notification> closed = new ArrayList<>();
+        findNotifications(ui.getElement(), opened);
+        opened.removeIf(notification -> !notification.isOpened()
+                || shown.containsKey(notification));
+        shown.keySet().forEach(notification -> {
+            if (!notification.isOpened()) {
+                closed.add(notification);
+            } else if (!notification.getUI().isPresent()) {
+                // Removed from the DOM without closing it first
+                closed.add(notification);
+            }
+        });
+
+        JsonArray batchedChanges = Json.createArray();
+        closed.forEach(notification -> {
+            shown.remove(notification);
+            if (notification.getUI().isPresent()
+                    && !isLazyClose(notification)) {
+                reportOpenedChanged(notification, false, batchedChanges);
+            }
+        });
+        opened.forEach(notification -> {
+            shown.put(notification, time);
+            reportOpenedChanged(notification, true, batchedChanges);
+        });
+        fireBatchedChanges(batchedChanges);
+    }
+
+    private static void findNotifications(Element element,
+            List<Notification> notifications) {
+        element.getComponent()
+                .filter(component -> component instanceof Notification)
+                .ifPresent(component -> notifications
+                        .add((Notification) component));
+        element.getChildren()
+                .forEach(child -> findNotifications(child, notifications));
+    }
+
+    /**
+     * Moves the virtual time of the client forward. Notifications shown
+     * longer than their duration are closed on the client, and the response
+     * to the resulting events is processed with {@link #roundTrip()}.
+     * Notifications in lazy close mode are reported in one batch, as the
+     * client would do after its batching delay.
+     *
+     * @param duration
+     *            the time to move forward, not negative
+     */
+    public void advanceTime(Duration duration) {
+        if (duration.isNegative()) {
+            throw new IllegalArgumentException(
+                    "Time cannot be moved backwards");
+        }
+        time += duration.toMillis();
+        List<Notification> expired = shown.entrySet().stream()
+                .filter(entry -> {
+                    int notificationDuration = entry.getKey().getDuration();
+                    return notificationDuration > 0 && time
+                            - entry.getValue() >= notificationDuration;
+                }).map(Map.Entry::getKey).collect(Collectors.toList());
+        JsonArray lazyClosed = Json.createArray();
+        JsonArray batchedChanges = Json.createArray();
+        expired.forEach(notification -> {
+            if (isLazyClose(notification)) {
+                lazyClosed.set(lazyClosed.length(), notification.getElement()
+                        .getAttribute(LAZY_CLOSE_ATTRIBUTE));
+                // The client does not synchronize the property in this mode
+                shown.remove(notification);
+            } else {
+                closeOnClient(notification, batchedChanges);
+            }
+        });
+        if (lazyClosed.length() > 0) {
+            fireDetailEvent(LAZY_CLOSED_EVENT, lazyClosed);
+        }
+        fireBatchedChanges(batchedChanges);
+        roundTrip();
+    }
+
+    /**
+     * Gets the virtual time of the client, starting from zero.
+     *
+     * @return the time in milliseconds
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * Closes the given notification on the client, as if the user or the
+     * duration closed it, and notifies the server. Call {@link #roundTrip()}
+     * to process the response.
+     *
+     * @param notification
+     *            a notification shown on the client, not {@code null}
+     */
+    public void closeFromClient(Notification notification) {
+        if (!shown.containsKey(notification)) {
+            throw new IllegalArgumentException(
+                    "The notification is not shown on the client");
+        }
+        JsonArray batchedChanges = Json.createArray();
+        closeOnClient(notification, batchedChanges);
+        fireBatchedChanges(batchedChanges);
+    }
+
+    private void closeOnClient(Notification notification,
+            JsonArray batchedChanges) {
+        shown.remove(notification);
+        if (isBatched(notification)) {
+            // The client does not synchronize the property in this mode
+            reportOpenedChanged(notification, false, batchedChanges);
+        } else {
+            notification.getElement().setProperty("opened", false);
+            fireOpenedChanged(notification);
+        }
+    }
+
+    /**
+     * Checks whether the given notification is shown on the client, which is
+     * only updated by {@link #roundTrip()} and {@link #advanceTime(Duration)}.
+     *
+     * @param notification
+     *            the notification to check
+     * @return {@code true} if the notification is shown on the client
+     */
+    public boolean isShown(Notification notification) {
+        return shown.containsKey(notification);
+    }
+
+    /**
+     * Gets the notifications shown on the client, in the order they were
+     * shown.
+     *
+     * @return a list of notifications, not {@code null}
+     */
+    public List<Notification> getShown() {
+        return new ArrayList<>(shown.keySet());
+    }
+
+    /**
+     * Gets the JavaScript expressions sent to the client in the last
+     * {@link #roundTrip()}.
+     *
+     * @return a list of expressions, not {@code null}
+     */
+    public List<String> getExecutedJavaScript() {
+        return Collections.unmodifiableList(javaScript);
+    }
+
+    /**
+     * Gets the text the given notification renders, with whitespace
+     * normalized as in a browser.
+     *
+     * @param notification
+     *            the notification, not {@code null}
+     * @return the text, or an empty string if the notification renders
+     *         components instead
+     */
+    public String getText(Notification notification) {
+        return notification.getElement().getChildren()
+                .filter(child -> "template".equals(child.getTag()))
+                .map(template -> template.getProperty("innerHTML", ""))
+                .map(html -> Jsoup.parseBodyFragment(html).text()).findFirst()
+                .orElse("");
+    }
+
+    /**
+     * Gets the components the given notification renders.
+     *
+     * @param notification
+     *            the notification, not {@code null}
+     * @return a list of components, not {@code null}
+     */
+    public List<Component> getComponents(Notification notification) {
+        return notification.getChildren().collect(Collectors.toList());
+    }
+
+    /**
+     * Clears the current instances and releases the session lock.
+     */
+    @Override
+    public void close() {
+        UI.setCurrent(null);
+        VaadinSession.setCurrent(null);
+        while (session.hasLock()) {
+            session.unlock();
+        }
+    }
+
+    private static boolean isLazyClose(Notification notification) {
+        return notification.getElement()
+                .hasAttribute(LAZY_CLOSE_ATTRIBUTE);
+    }
+
+    private static boolean isBatched(Notification notification) {
+        return notification.getElement()
+                .hasAttribute(OPENED_CHANGE_BATCH_ATTRIBUTE);
+    }
+
+    private static void reportOpenedChanged(Notification notification,
+            boolean opened, JsonArray batchedChanges) {
+        if (isBatched(notification)) {
+            JsonObject change = Json.createObject();
+            change.put("id", notification.getElement()
+                    .getAttribute(OPENED_CHANGE_BATCH_ATTRIBUTE));
+            change.put("opened", opened);
+            batchedChanges.set(batchedChanges.length(), change);
+        } else {
+            fireOpenedChanged(notification);
+        }
+    }
+
+    private void fireBatchedChanges(JsonArray batchedChanges) {
+        if (batchedChanges.length() > 0) {
+            fireDetailEvent(OPENED_CHANGES_EVENT, batchedChanges);
+        }
+    }
+
+    private void fireDetailEvent(String type, JsonArray detail) {
+        JsonObject eventData = Json.createObject();
+        eventData.put("event.detail", detail);
+        fireEvent(ui.getElement(), type, eventData);
+    }
+
+    private static void fireOpenedChanged(Notification notification) {
+        fireEvent(notification.getElement(), OPENED_CHANGED_EVENT,
+                Json.createObject());
+    }
+
+    private static void fireEvent(Element element, String type,
+            JsonObject eventData) {
+        element.getNode().getFeature(ElementListenerMap.class)
+                .fireEvent(new DomEvent(element, type, eventData));
+    }
+}
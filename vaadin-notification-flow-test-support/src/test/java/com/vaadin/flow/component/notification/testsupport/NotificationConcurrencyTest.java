@@ -0,0 +1,283 @@
+/*
+ * Copyright 2000-2019 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.notification.testsupport;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.html.Div;
+import com.vaadin.flow.component.notification.Notification;
+import com.vaadin.flow.dom.DomEvent;
+import com.vaadin.flow.internal.nodefeature.ElementListenerMap;
+
+import elemental.json.Json;
+
+/**
+ * Concurrency tests for the access model of {@link Notification}.
+ * <p>
+ * The randomized test runs operations on notifications from several threads,
+ * each operation holding the session lock as with
+ * {@link UI#access(com.vaadin.flow.server.Command)}, interleaved with round
+ * trips, simulated client events and tasks queued with {@code UI.access}. By
+ * default it runs a fixed number of operations per thread with a fixed seed.
+ * Set {@code -Dnotification.concurrency.seconds} to run it for the given time
+ * instead, and {@code -Dnotification.concurrency.seed} to use other operation
+ * sequences or to repeat those of a failed run. The interleaving of the
+ * threads still varies between runs.
+ */
+public class NotificationConcurrencyTest {
+
+    private static final int THREADS = 4;
+    private static final int NOTIFICATIONS = 8;
+    private static final int OPERATIONS_PER_THREAD = 2000;
+    private static final long DEFAULT_SEED = 42;
+
+    private final MockVaadinSession session = new MockVaadinSession();
+    private final UI ui = new UI();
+
+    public NotificationConcurrencyTest() {
+        session.lock();
+        try {
+            ui.getInternals().setSession(session);
+        } finally {
+            session.unlock();
+        }
+    }
+
+    @Test
+    public void setOpened_withoutSessionLock_fails()
+            throws InterruptedException {
+        Notification notification = new Notification("foo");
+
+        Throwable failure = runInOtherThread(() -> {
+            UI.setCurrent(ui);
+            notification.open();
+        });
+
+        assertLockFailure(failure);
+        Assert.assertFalse(notification.isOpened());
+    }
+
+    @Test
+    public void setText_attachedWithoutSessionLock_fails()
+            throws InterruptedException {
+        Notification notification = new Notification("foo", 0);
+        ui.accessSynchronously(() -> {
+            notification.open();
+            roundTrip();
+        });
+
+        assertLockFailure(runInOtherThread(() -> notification.setText("bar")));
+        assertLockFailure(
+                runInOtherThread(() -> notification.add(new Div())));
+    }
+
+    @Test
+    public void remove_attachedWithoutSessionLock_fails()
+            throws InterruptedException {
+        Notification notification = new Notification("foo", 0);
+        Div div = new Div();
+        ui.accessSynchronously(() -> {
+            notification.add(div);
+            notification.open();
+            roundTrip();
+        });
+
+        assertLockFailure(runInOtherThread(() -> notification.remove(div)));
+        assertLockFailure(runInOtherThread(notification::removeAll));
+        Assert.assertEquals(1, notification.getChildren().count());
+    }
+
+    @Test
+    public void setText_notAttachedWithoutSessionLock_allowed()
+            throws InterruptedException {
+        Notification notification = new Notification("foo");
+
+        Assert.assertNull(runInOtherThread(() -> {
+            notification.setText("bar");
+            notification.add(new Div());
+        }));
+    }
+
+    @Test
+    public void randomizedAccess_stateIsConsistent()
+            throws InterruptedException {
+        long seed = Long.getLong("notification.concurrency.seed",
+                DEFAULT_SEED);
+        Long seconds = Long.getLong("notification.concurrency.seconds");
+        int operations = seconds == null ? OPERATIONS_PER_THREAD
+                : Integer.MAX_VALUE;
+        long deadline = seconds == null ? Long.MAX_VALUE
+                : System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        List<Notification> notifications = new ArrayList<>();
+        for (int i = 0; i < NOTIFICATIONS; i++) {
+            Notification notification = new Notification("Notification " + i,
+                    0);
+            notification.setLazyClose(i % 4 == 3);
+            notifications.add(notification);
+        }
+        List<Notification> shown = new CopyOnWriteArrayList<>();
+        Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            Random random = new Random(seed + t);
+            Thread thread = new Thread(() -> {
+                try {
+                    for (int i = 0; i < operations
+                            && System.nanoTime() < deadline; i++) {
+                        Notification notification = notifications
+                                .get(random.nextInt(notifications.size()));
+                        runRandomOperation(random, notification, shown);
+                    }
+                } catch (Throwable e) {
+                    failures.add(e);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        if (!failures.isEmpty()) {
+            AssertionError error = new AssertionError(
+                    "Failed with seed " + seed, failures.peek());
+            failures.forEach(error::addSuppressed);
+            throw error;
+        }
+
+        List<Notification> all = new ArrayList<>(notifications);
+        all.addAll(shown);
+        ui.accessSynchronously(() -> {
+            session.runPendingAccessTasks();
+            roundTrip();
+            List<Notification> open = all.stream()
+                    .filter(Notification::isOpened)
+                    .collect(Collectors.toList());
+            Assert.assertEquals("Seed " + seed, open.size(),
+                    Notification.getOpenCount(ui));
+            open.forEach(notification -> Assert.assertSame("Seed " + seed,
+                    ui, notification.getUI().orElse(null)));
+
+            Notification.closeAll(ui);
+            // Acknowledged even in lazy close mode, to clean up right away
+            all.forEach(NotificationConcurrencyTest::fireOpenedChanged);
+            roundTrip();
+            Assert.assertEquals("Seed " + seed, 0,
+                    Notification.getOpenCount(ui));
+            Assert.assertFalse("Seed " + seed,
+                    ui.getChildren().anyMatch(
+                            child -> child instanceof Notification));
+        });
+    }
+
+    private void runRandomOperation(Random random, Notification notification,
+            List<Notification> shown) {
+        switch (random.nextInt(10)) {
+        case 0:
+            // Queued from a background thread, run on a later round trip
+            ui.access(notification::open);
+            break;
+        case 1:
+            ui.accessSynchronously(notification::open);
+            break;
+        case 2:
+            ui.accessSynchronously(notification::close);
+            break;
+        case 3:
+            ui.accessSynchronously(() -> notification
+                    .setText("Text " + random.nextInt(100)));
+            break;
+        case 4:
+            ui.accessSynchronously(() -> {
+                notification.add(new Div());
+                if (random.nextBoolean()) {
+                    notification.removeAll();
+                }
+            });
+            break;
+        case 5:
+            ui.accessSynchronously(() -> shown.add(Notification.show("Shown")));
+            break;
+        case 6:
+            ui.accessSynchronously(() -> {
+                notification.getElement().setProperty("opened", false);
+                fireOpenedChanged(notification);
+            });
+            break;
+        case 7:
+            ui.accessSynchronously(() -> fireOpenedChanged(notification));
+            break;
+        default:
+            ui.accessSynchronously(() -> {
+                session.runPendingAccessTasks();
+                roundTrip();
+            });
+        }
+    }
+
+    private void roundTrip() {
+        ui.getInternals().getStateTree().runExecutionsBeforeClientResponse();
+        ui.getInternals().dumpPendingJavaScriptInvocations();
+        ui.getInternals().getStateTree().collectChanges(change -> {
+        });
+    }
+
+    private static void fireOpenedChanged(Notification notification) {
+        if (notification.getElement().getNode().isAttached()) {
+            notification.getElement().getNode()
+                    .getFeature(ElementListenerMap.class)
+                    .fireEvent(new DomEvent(notification.getElement(),
+                            "opened-changed", Json.createObject()));
+        }
+    }
+
+    private static Throwable runInOtherThread(Runnable runnable)
+            throws InterruptedException {
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread thread = new Thread(() -> {
+            try {
+                runnable.run();
+            } catch (Throwable e) {
+                failure.set(e);
+            } finally {
+                UI.setCurrent(null);
+            }
+        });
+        thread.start();
+        thread.join();
+        return failure.get();
+    }
+
+    private static void assertLockFailure(Throwable failure) {
+        // Assertion without a deployment configuration, as in production mode
+        Assert.assertTrue(String.valueOf(failure),
+                failure instanceof IllegalStateException
+                        || failure instanceof AssertionError);
+    }
+}
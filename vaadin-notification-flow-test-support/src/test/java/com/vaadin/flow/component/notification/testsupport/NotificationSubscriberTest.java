@@ -0,0 +1,178 @@
+/*
+ * Copyright 2000-2019 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.notification.testsupport;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.notification.Notification;
+import com.vaadin.flow.component.notification.NotificationSubscriber;
+import com.vaadin.flow.server.ErrorEvent;
+import com.vaadin.flow.shared.Registration;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+@NotThreadSafe
+public class NotificationSubscriberTest {
+
+    private NotificationTester tester;
+    private UI ui;
+    private final TestPublisher publisher = new TestPublisher();
+
+    private static class TestPublisher
+            implements Publisher<String>, Subscription {
+        private Subscriber<? super String> subscriber;
+        private long requested;
+        private boolean cancelled;
+
+        @Override
+        public void subscribe(Subscriber<? super String> subscriber) {
+            this.subscriber = subscriber;
+            subscriber.onSubscribe(this);
+        }
+
+        @Override
+        public void request(long n) {
+            requested += n;
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+
+        void send(String... items) {
+            for (String item : items) {
+                subscriber.onNext(item);
+            }
+        }
+    }
+
+    @Before
+    public void setUp() {
+        tester = new NotificationTester();
+        ui = tester.getUI();
+    }
+
+    @After
+    public void tearDown() {
+        tester.close();
+    }
+
+    @Test
+    public void subscribe_requestsUpToMaxVisible() {
+        subscribe(2);
+        Assert.assertEquals(0, publisher.requested);
+
+        tester.roundTrip();
+        Assert.assertEquals(2, publisher.requested);
+
+        publisher.send("one", "two");
+        tester.roundTrip();
+        Assert.assertEquals(2, tester.getShown().size());
+        Assert.assertEquals(2, publisher.requested);
+
+        tester.closeFromClient(tester.getShown().get(0));
+        Assert.assertEquals(3, publisher.requested);
+    }
+
+    @Test
+    public void onNext_moreThanRequested_cancelledAndReported() {
+        List<ErrorEvent> errors = new ArrayList<>();
+        tester.getSession().setErrorHandler(errors::add);
+        subscribe(1);
+        tester.roundTrip();
+
+        publisher.send("one", "two");
+        tester.roundTrip();
+
+        Assert.assertTrue(publisher.cancelled);
+        Assert.assertEquals(1, tester.getShown().size());
+        Assert.assertEquals("one", tester.getText(tester.getShown().get(0)));
+        Assert.assertEquals(1, errors.size());
+        Assert.assertTrue(
+                errors.get(0).getThrowable() instanceof IllegalStateException);
+    }
+
+    @Test
+    public void uiDetached_subscriptionCancelled() {
+        subscribe(2);
+        tester.roundTrip();
+
+        tester.getSession().removeUI(ui);
+
+        Assert.assertTrue(publisher.cancelled);
+    }
+
+    @Test
+    public void cancelRegistration_subscriptionCancelled() {
+        Registration registration = subscribe(2);
+        tester.roundTrip();
+
+        registration.remove();
+        publisher.send("one");
+        tester.roundTrip();
+
+        Assert.assertTrue(publisher.cancelled);
+        Assert.assertTrue(tester.getShown().isEmpty());
+    }
+
+    @Test
+    public void onComplete_receivedItemsShownAndNoMoreRequested() {
+        subscribe(2);
+        tester.roundTrip();
+
+        publisher.send("one", "two");
+        publisher.subscriber.onComplete();
+        tester.roundTrip();
+
+        Assert.assertEquals(2, tester.getShown().size());
+        tester.closeFromClient(tester.getShown().get(0));
+        Assert.assertEquals(2, publisher.requested);
+    }
+
+    @Test
+    public void onError_receivedItemsShownAndErrorReported() {
+        List<ErrorEvent> errors = new ArrayList<>();
+        tester.getSession().setErrorHandler(errors::add);
+        subscribe(2);
+        tester.roundTrip();
+        RuntimeException error = new RuntimeException("failed");
+
+        publisher.send("one");
+        publisher.subscriber.onError(error);
+        Assert.assertTrue(errors.isEmpty());
+        tester.roundTrip();
+
+        Assert.assertEquals(1, tester.getShown().size());
+        Assert.assertEquals(1, errors.size());
+        Assert.assertSame(error, errors.get(0).getThrowable());
+    }
+
+    private Registration subscribe(int maxVisible) {
+        return NotificationSubscriber.subscribe(ui, publisher,
+                text -> new Notification(text, 0), maxVisible, 0);
+    }
+}
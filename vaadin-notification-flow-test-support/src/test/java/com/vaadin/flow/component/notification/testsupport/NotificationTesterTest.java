@@ -0,0 +1,190 @@
+/*
+ * Copyright 2000-2019 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.notification.testsupport;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.html.Div;
+import com.vaadin.flow.component.notification.Notification;
+import com.vaadin.flow.component.notification.Notification.OpenedChangeBatchEvent;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+@NotThreadSafe
+public class NotificationTesterTest {
+
+    private NotificationTester tester;
+
+    @Before
+    public void setUp() {
+        tester = new NotificationTester();
+    }
+
+    @After
+    public void tearDown() {
+        tester.close();
+    }
+
+    @Test
+    public void show_roundTrip_shownWithText() {
+        Notification notification = Notification.show("Hello <b>world</b>");
+        Assert.assertFalse(tester.isShown(notification));
+
+        tester.roundTrip();
+
+        Assert.assertTrue(tester.isShown(notification));
+        Assert.assertEquals("Hello <b>world</b>",
+                tester.getText(notification));
+        Assert.assertSame(tester.getUI(),
+                notification.getUI().orElse(null));
+        Assert.assertTrue(tester.getExecutedJavaScript().stream()
+                .anyMatch(expression -> expression
+                        .contains("notificationLoader.load")));
+    }
+
+    @Test
+    public void components_roundTrip_componentsRendered() {
+        Div content = new Div();
+        Notification notification = new Notification(content);
+        notification.open();
+
+        tester.roundTrip();
+
+        Assert.assertTrue(tester.isShown(notification));
+        Assert.assertEquals(Collections.singletonList(content),
+                tester.getComponents(notification));
+        Assert.assertEquals("", tester.getText(notification));
+    }
+
+    @Test
+    public void advanceTime_durationExpires_closedAndRemoved() {
+        Notification notification = Notification.show("foo");
+        CompletableFuture<Notification> closed = notification.whenClosed();
+        tester.roundTrip();
+
+        tester.advanceTime(Duration.ofMillis(4999));
+        Assert.assertTrue(tester.isShown(notification));
+        Assert.assertTrue(notification.isOpened());
+
+        tester.advanceTime(Duration.ofMillis(1));
+        Assert.assertFalse(tester.isShown(notification));
+        Assert.assertFalse(notification.isOpened());
+        Assert.assertTrue(closed.isDone());
+        Assert.assertFalse(notification.getUI().isPresent());
+        Assert.assertEquals(5000, tester.getTime());
+    }
+
+    @Test
+    public void advanceTime_zeroDuration_staysOpen() {
+        Notification notification = new Notification("foo", 0);
+        notification.open();
+        tester.roundTrip();
+
+        tester.advanceTime(Duration.ofHours(1));
+
+        Assert.assertTrue(tester.isShown(notification));
+        Assert.assertTrue(notification.isOpened());
+    }
+
+    @Test
+    public void advanceTime_lazyClose_closedOnServer() {
+        Notification notification = new Notification("foo", 1000);
+        notification.setLazyClose(true);
+        notification.open();
+        tester.roundTrip();
+
+        tester.advanceTime(Duration.ofSeconds(1));
+
+        Assert.assertFalse(tester.isShown(notification));
+        Assert.assertFalse(notification.isOpened());
+        Assert.assertEquals(0, Notification.getOpenCount(tester.getUI()));
+    }
+
+    @Test
+    public void advanceTime_batchListener_changesReportedInBatches() {
+        UI ui = tester.getUI();
+        List<OpenedChangeBatchEvent> events = new ArrayList<>();
+        Notification.addOpenedChangeBatchListener(ui, events::add);
+        CompletableFuture<Notification> first = Notification.showAsync(ui,
+                "first");
+        Notification second = Notification.show("second");
+
+        tester.roundTrip();
+        Assert.assertTrue(first.isDone());
+        Assert.assertEquals(1, events.size());
+
+        tester.advanceTime(Duration.ofSeconds(5));
+
+        Assert.assertEquals(2, events.size());
+        Assert.assertEquals(Arrays.asList(second, first.getNow(null)),
+                events.get(1).getClosed());
+        Assert.assertTrue(events.get(1).isFromClient());
+        Assert.assertFalse(second.isOpened());
+        Assert.assertTrue(tester.getShown().isEmpty());
+    }
+
+    @Test
+    public void closeFromClient_closedOnServer() {
+        Notification notification = new Notification("foo", 0);
+        notification.open();
+        tester.roundTrip();
+
+        tester.closeFromClient(notification);
+
+        Assert.assertFalse(notification.isOpened());
+        Assert.assertTrue(tester.getShown().isEmpty());
+    }
+
+    @Test
+    public void closeOnServer_roundTrip_hiddenOnClient() {
+        Notification notification = new Notification("foo", 0);
+        notification.open();
+        tester.roundTrip();
+
+        notification.close();
+        tester.roundTrip();
+
+        Assert.assertFalse(tester.isShown(notification));
+    }
+
+    @Test
+    public void accessFromBackgroundThread_runOnRoundTrip()
+            throws InterruptedException {
+        UI ui = tester.getUI();
+        Thread thread = new Thread(
+                () -> ui.access(() -> Notification.show("background")));
+        thread.start();
+        thread.join();
+        Assert.assertTrue(tester.getShown().isEmpty());
+
+        tester.roundTrip();
+
+        Assert.assertEquals(1, tester.getShown().size());
+        Assert.assertEquals("background",
+                tester.getText(tester.getShown().get(0)));
+    }
+}
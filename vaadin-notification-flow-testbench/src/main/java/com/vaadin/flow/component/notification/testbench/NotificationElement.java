@@ -15,8 +15,16 @@
  */
 package com.vaadin.flow.component.notification.testbench;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.openqa.selenium.JavascriptExecutor;
 import org.openqa.selenium.SearchContext;
 import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebElement;
 
 import com.vaadin.testbench.TestBenchElement;
 import com.vaadin.testbench.elementsbase.Element;
@@ -28,6 +36,40 @@ import com.vaadin.testbench.elementsbase.Element;
 @Element("vaadin-notification")
 public class NotificationElement extends TestBenchElement {
 
+    private static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(10);
+
+    /**
+     * Longest time a single wait script runs, kept below the default script
+     * timeout of the drivers.
+     */
+    private static final long MAX_SCRIPT_MILLIS = 5000;
+
+    /**
+     * Resolves when the condition holds, checked on every opened-changed event
+     * and periodically for elements added later or whose events do not reach
+     * the document, or with the final state when the timeout expires.
+     */
+    private static final String WAIT_SCRIPT = "var target = arguments[0], mode = arguments[1], expected = arguments[2];"
+            + "var done = arguments[arguments.length - 1];"
+            + "var check = function() {"
+            + "  if (mode === 'count') {"
+            + "    return Array.prototype.filter.call(document.querySelectorAll('vaadin-notification'),"
+            + "        function(n) { return n.opened; }).length === expected;"
+            + "  }"
+            + "  return !!target.opened === expected;"
+            + "};"
+            + "if (check()) { done(true); return; }"
+            + "var listener, interval, timer;"
+            + "var finish = function(result) {"
+            + "  clearTimeout(timer); clearInterval(interval);"
+            + "  document.removeEventListener('opened-changed', listener, true);"
+            + "  done(result);"
+            + "};"
+            + "listener = function() { if (check()) { finish(true); } };"
+            + "interval = setInterval(listener, 100);"
+            + "timer = setTimeout(function() { finish(check()); }, arguments[3]);"
+            + "document.addEventListener('opened-changed', listener, true);";
+
     /**
      * Checks whether the notification is shown.
      *
@@ -44,6 +86,133 @@ public class NotificationElement extends TestBenchElement {
         }
     }
 
+    /**
+     * Reads the opened state, text, position, duration and theme of the
+     * notification with a single script execution.
+     *
+     * @return the current state of the notification
+     */
+    public NotificationSnapshot snapshot() {
+        return NotificationSnapshot.fromScriptResult((Map<?, ?>) executeScript(
+                "return (" + NotificationSnapshot.SNAPSHOT_FUNCTION
+                        + ")(arguments[0]);",
+                this));
+    }
+
+    /**
+     * Reads the state of every <code>&lt;vaadin-notification&gt;</code> in the
+     * page with a single script execution.
+     *
+     * @param executor
+     *            the driver to execute the script with, for example
+     *            <code>getDriver()</code> in a test
+     * @return the state of the notifications, in document order
+     */
+    public static List<NotificationSnapshot> snapshotAll(
+            JavascriptExecutor executor) {
+        List<?> result = (List<?>) executor.executeScript(
+                "return Array.from(document.querySelectorAll('vaadin-notification')).map("
+                        + NotificationSnapshot.SNAPSHOT_FUNCTION + ");");
+        return result.stream()
+                .map(values -> NotificationSnapshot
+                        .fromScriptResult((Map<?, ?>) values))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Waits up to ten seconds until the notification is shown.
+     *
+     * @throws TimeoutException
+     *             if the notification is not shown in time
+     */
+    public void waitUntilOpen() {
+        waitUntilOpen(DEFAULT_TIMEOUT);
+    }
+
+    /**
+     * Waits until the notification is shown. The browser notifies the test
+     * as soon as the notification opens, without polling over WebDriver.
+     *
+     * @param timeout
+     *            the maximum time to wait
+     * @throws TimeoutException
+     *             if the notification is not shown in time
+     */
+    public void waitUntilOpen(Duration timeout) {
+        waitFor((JavascriptExecutor) getDriver(), this, "opened", true,
+                timeout, "notification to open");
+    }
+
+    /**
+     * Waits up to ten seconds until the notification is closed.
+     *
+     * @throws TimeoutException
+     *             if the notification is still shown after the timeout
+     */
+    public void waitUntilClosed() {
+        waitUntilClosed(DEFAULT_TIMEOUT);
+    }
+
+    /**
+     * Waits until the notification is closed, for example after its
+     * duration. The browser notifies the test as soon as the notification
+     * closes, without polling over WebDriver.
+     *
+     * @param timeout
+     *            the maximum time to wait
+     * @throws TimeoutException
+     *             if the notification is still shown after the timeout
+     */
+    public void waitUntilClosed(Duration timeout) {
+        try {
+            waitFor((JavascriptExecutor) getDriver(), this, "opened", false,
+                    timeout, "notification to close");
+        } catch (StaleElementReferenceException e) {
+            // The element is no longer even attached to the DOM
+            // -> it's not open
+        }
+    }
+
+    /**
+     * Waits until exactly the given number of notifications are shown in the
+     * page.
+     *
+     * @param executor
+     *            the driver to execute the script with, for example
+     *            <code>getDriver()</code> in a test
+     * @param count
+     *            the expected number of open notifications
+     * @param timeout
+     *            the maximum time to wait
+     * @throws TimeoutException
+     *             if the number of open notifications differs after the
+     *             timeout
+     */
+    public static void waitForCount(JavascriptExecutor executor, int count,
+            Duration timeout) {
+        waitFor(executor, null, "count", count, timeout,
+                count + " open notifications");
+    }
+
+    private static void waitFor(JavascriptExecutor executor,
+            WebElement target, String mode, Object expected, Duration timeout,
+            String description) {
+        long deadline = System.currentTimeMillis() + timeout.toMillis();
+        while (true) {
+            long remaining = Math.max(0,
+                    deadline - System.currentTimeMillis());
+            Object result = executor.executeAsyncScript(WAIT_SCRIPT, target,
+                    mode, expected, Math.min(remaining, MAX_SCRIPT_MILLIS));
+            if (Boolean.TRUE.equals(result)) {
+                return;
+            }
+            if (System.currentTimeMillis() >= deadline) {
+                throw new TimeoutException("Timed out after " + timeout
+                        + " waiting for " + description);
+            }
+        }
+    }
+
     @Override
     public String getText() {
         return getCard().getText();
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2000-2018 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.notification.testbench;
+
+import java.util.Map;
+
+/**
+ * The state of a <code>&lt;vaadin-notification&gt;</code> element, read from
+ * the browser in a single script execution.
+ *
+ * @see NotificationElement#snapshot()
+ * @see NotificationElement#snapshotAll(org.openqa.selenium.JavascriptExecutor)
+ */
+public class NotificationSnapshot {
+
+    /**
+     * Script function returning the state of a notification element as an
+     * object.
+     */
+    static final String SNAPSHOT_FUNCTION = "function(n) { return {"
+            + "opened: !!n.opened,"
+            + "text: n._card ? n._card.innerText.trim() : '',"
+            + "position: n.position || '',"
+            + "duration: n.duration || 0,"
+            + "theme: n.getAttribute('theme') || ''"
+            + "}; }";
+
+    private final boolean opened;
+    private final String text;
+    private final String position;
+    private final int duration;
+    private final String theme;
+
+    private NotificationSnapshot(boolean opened, String text,
+            String position, int duration, String theme) {
+        this.opened = opened;
+        this.text = text;
+        this.position = position;
+        this.duration = duration;
+        this.theme = theme;
+    }
+
+    /**
+     * Creates a snapshot from the object returned by
+     * {@link #SNAPSHOT_FUNCTION}.
+     *
+     * @param values
+     *            the values returned by the script
+     * @return the snapshot
+     */
+    static NotificationSnapshot fromScriptResult(Map<?, ?> values) {
+        return new NotificationSnapshot(
+                Boolean.TRUE.equals(values.get("opened")),
+                String.valueOf(values.get("text")),
+                String.valueOf(values.get("position")),
+                ((Number) values.get("duration")).intValue(),
+                String.valueOf(values.get("theme")));
+    }
+
+    /**
+     * Checks whether the notification was shown.
+     *
+     * @return <code>true</code> if the notification was shown,
+     *         <code>false</code> otherwise
+     */
+    public boolean isOpen() {
+        return opened;
+    }
+
+    /**
+     * Gets the text content of the notification card.
+     *
+     * @return the text of the notification, not <code>null</code>
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * Gets the position of the notification, for example
+     * <code>bottom-start</code>.
+     *
+     * @return the position, not <code>null</code>
+     */
+    public String getPosition() {
+        return position;
+    }
+
+    /**
+     * Gets the duration of the notification in milliseconds.
+     *
+     * @return the duration, <code>0</code> if the notification does not close
+     *         automatically
+     */
+    public int getDuration() {
+        return duration;
+    }
+
+    /**
+     * Gets the theme attribute of the notification, for example
+     * <code>error</code>.
+     *
+     * @return the theme names separated by spaces, or an empty string
+     */
+    public String getTheme() {
+        return theme;
+    }
+
+    @Override
+    public String toString() {
+        return "NotificationSnapshot[opened=" + opened + ", text=" + text
+                + ", position=" + position + ", duration=" + duration
+                + ", theme=" + theme + "]";
+    }
+}
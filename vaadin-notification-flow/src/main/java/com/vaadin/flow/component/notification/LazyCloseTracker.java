@@ -0,0 +1,188 @@
+/*
+ * Copyright 2000-2019 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.notification;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.vaadin.flow.component.ComponentUtil;
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.UIDetachedException;
+import com.vaadin.flow.server.RequestHandler;
+import com.vaadin.flow.server.VaadinSession;
+
+import elemental.json.JsonArray;
+
+/**
+ * Per-UI bookkeeping for notifications in lazy close mode. The client does
+ * not report the closing of such notifications one by one; instead, it
+ * acknowledges them in batches with a {@value #ACKNOWLEDGE_EVENT} event on
+ * the UI element. Notifications that are expected to be closed by now are
+ * also cleaned up whenever a notification is opened or closed in the UI, and
+ * by a request handler of the session at the start of each request while any
+ * notification is tracked. The tracker is stored as component data of the UI
+ * it belongs to.
+ *
+ * @author Vaadin Ltd
+ */
+class LazyCloseTracker implements Serializable {
+
+    static final String ACKNOWLEDGE_EVENT = "vaadin-notification-lazy-closed";
+
+    private static final String ACKNOWLEDGED_IDS = "event.detail";
+
+    private final Map<String, Notification> tracked = new LinkedHashMap<>();
+    private int nextId;
+    // Read by the request handler without holding the session lock
+    private volatile boolean empty = true;
+
+    /**
+     * Gets the tracker of the given UI.
+     *
+     * @param ui
+     *            the UI to get the tracker for, not {@code null}
+     * @return the tracker, or {@code null} if no lazily closed notification
+     *         has been opened in the UI
+     */
+    static LazyCloseTracker get(UI ui) {
+        return ComponentUtil.getData(ui, LazyCloseTracker.class);
+    }
+
+    /**
+     * Gets the tracker of the given UI, creating it if needed.
+     *
+     * @param ui
+     *            the UI to get the tracker for, not {@code null}
+     * @return the tracker, not {@code null}
+     */
+    static LazyCloseTracker getOrCreate(UI ui) {
+        LazyCloseTracker tracker = get(ui);
+        if (tracker == null) {
+            LazyCloseTracker created = new LazyCloseTracker();
+            ComponentUtil.setData(ui, LazyCloseTracker.class, created);
+            ui.getElement()
+                    .addEventListener(ACKNOWLEDGE_EVENT,
+                            event -> created.acknowledge(event.getEventData()
+                                    .getArray(ACKNOWLEDGED_IDS)))
+                    .addEventData(ACKNOWLEDGED_IDS);
+            VaadinSession session = ui.getSession();
+            if (session != null) {
+                RequestHandler sweeper = (requestSession, request,
+                        response) -> created.sweepBeforeRequest(ui);
+                session.addRequestHandler(sweeper);
+                ui.addDetachListener(event -> {
+                    session.removeRequestHandler(sweeper);
+                    event.unregisterListener();
+                });
+            }
+            tracker = created;
+        }
+        return tracker;
+    }
+
+    /**
+     * Starts tracking an opened notification and gives it the id the client
+     * uses for acknowledging it.
+     *
+     * @param notification
+     *            the opened notification
+     * @return the id of the notification
+     */
+    String track(Notification notification) {
+        String id = notification.getElement()
+                .getAttribute(Notification.LAZY_CLOSE_ATTRIBUTE);
+        if (id == null || tracked.get(id) != notification) {
+            id = String.valueOf(nextId++);
+            tracked.put(id, notification);
+            empty = false;
+        }
+        return id;
+    }
+
+    /**
+     * Stops tracking a notification without cleaning it up.
+     *
+     * @param notification
+     *            the notification to stop tracking
+     */
+    void untrack(Notification notification) {
+        tracked.values().remove(notification);
+        empty = tracked.isEmpty();
+    }
+
+    /**
+     * Cleans up the notifications that are expected to be closed by the given
+     * time.
+     *
+     * @param now
+     *            the current time in milliseconds
+     */
+    void sweep(long now) {
+        List<Notification> expired = new ArrayList<>();
+        Iterator<Notification> iterator = tracked.values().iterator();
+        while (iterator.hasNext()) {
+            Notification notification = iterator.next();
+            if (notification.getExpectedCloseTime() <= now) {
+                iterator.remove();
+                expired.add(notification);
+            }
+        }
+        empty = tracked.isEmpty();
+        expired.forEach(Notification::finishLazyClose);
+    }
+
+    /**
+     * Gets the number of tracked notifications.
+     *
+     * @return the number of tracked notifications
+     */
+    int size() {
+        return tracked.size();
+    }
+
+    private void acknowledge(JsonArray ids) {
+        for (int i = 0; i < ids.length(); i++) {
+            Notification notification = tracked.remove(ids.getString(i));
+            if (notification != null) {
+                notification.finishLazyClose();
+            }
+        }
+        empty = tracked.isEmpty();
+    }
+
+    /**
+     * Sweeps at the start of a request to the session, before its own
+     * handling, which the session lock is not yet held for. Only locks the
+     * session while any notification is tracked.
+     *
+     * @return {@code false}, so that the request is handled as usual
+     */
+    private boolean sweepBeforeRequest(UI ui) {
+        if (!empty) {
+            try {
+                ui.accessSynchronously(
+                        () -> sweep(System.currentTimeMillis()));
+            } catch (UIDetachedException e) {
+                // The UI has been closed, nothing to clean up
+            }
+        }
+        return false;
+    }
+}
@@ -15,15 +15,22 @@
  */
 package com.vaadin.flow.component.notification;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
 import java.util.Locale;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.stream.Stream.Builder;
 
 import com.vaadin.flow.component.AttachEvent;
 import com.vaadin.flow.component.Component;
+import com.vaadin.flow.component.ComponentEvent;
 import com.vaadin.flow.component.ComponentEventListener;
 import com.vaadin.flow.component.ComponentUtil;
 import com.vaadin.flow.component.DetachEvent;
@@ -31,32 +38,92 @@ import com.vaadin.flow.component.HasComponents;
 import com.vaadin.flow.component.HasTheme;
 import com.vaadin.flow.component.Text;
 import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.UIDetachedException;
 import com.vaadin.flow.component.dependency.JsModule;
 import com.vaadin.flow.dom.Element;
 import com.vaadin.flow.dom.ElementFactory;
 import com.vaadin.flow.function.SerializableConsumer;
+import com.vaadin.flow.function.SerializableFunction;
 import com.vaadin.flow.internal.HtmlUtils;
+import com.vaadin.flow.internal.nodefeature.ElementPropertyMap;
+import com.vaadin.flow.server.Command;
+import com.vaadin.flow.server.VaadinRequest;
+import com.vaadin.flow.server.VaadinSession;
 import com.vaadin.flow.shared.Registration;
+import com.vaadin.flow.theme.AbstractTheme;
 
 /**
  * Server-side component for the <code>vaadin-notification</code> element.
+ * <p>
+ * The {@code <vaadin-notification>} web component, in the variant of the
+ * theme of the UI, and the renderer used for components added to a
+ * notification are not part of the initial frontend bundle. They are loaded
+ * from a separate chunk when a notification is opened for the first time in a
+ * UI.
+ * <p>
+ * Like other components, a notification is not thread safe. Its state, and
+ * the state it keeps in its UI, is guarded by the session lock: once the
+ * notification is attached, or when opening it, its methods must be called
+ * from a request thread or from {@link UI#access(Command)}. A notification
+ * that is not attached to any UI can be prepared on any thread.
+ * {@link #showAsync(UI, String)}, {@link NotificationDispatcher} and
+ * {@link NotificationSubscriber} take care of the locking for background
+ * deliveries. {@link #setOpened(boolean)}, {@link #setText(String)} and the
+ * methods adding and removing components fail fast when called without the
+ * lock: in development mode with an {@link IllegalStateException}, and in
+ * production mode only when assertions are enabled.
  *
  * @author Vaadin Ltd
  */
-@JsModule("./flow-component-renderer.js")
+@JsModule("./vaadin-notification-loader.js")
+@JsModule("./vaadin-notification-events.js")
 public class Notification extends GeneratedVaadinNotification<Notification>
         implements HasComponents, HasTheme {
 
-    private static final int DEFAULT_DURATION = 5000;
-    private static final Position DEFAULT_POSITION = Position.BOTTOM_START;
+    static final int DEFAULT_DURATION = 5000;
+    static final Position DEFAULT_POSITION = Position.BOTTOM_START;
 
     private static final SerializableConsumer<UI> NO_OP = ui -> {
     };
 
+    static final String LAZY_CLOSE_ATTRIBUTE = "lazy-close";
+
+    static final String OPENED_CHANGE_BATCH_ATTRIBUTE = "opened-change-batch";
+
+    /**
+     * Time allowed for the client to open a lazily closed notification after
+     * the server, before it is assumed to have closed on its own.
+     */
+    private static final long LAZY_CLOSE_GRACE_MILLIS = 2000;
+
+    /**
+     * UI data key marking that the frontend modules have been requested for
+     * the page of the UI.
+     */
+    private static final String MODULES_LOADED = Notification.class.getName()
+            + ".modulesLoaded";
+
     private final Element container = ElementFactory.createDiv();
     private final Element templateElement = new Element("template");
+
+    // Guarded by the session lock of the UI the notification is attached to
     private boolean autoAddedToTheUi = false;
+    private boolean recyclable = false;
+    private String text;
+    private Priority priority = Priority.NORMAL;
+    private int deferrals;
+    private boolean lazyClose;
+    private Delivery delivery = Delivery.AUTOMATIC;
+    private Instant deliverBy;
+    private long openRequestedAt;
+    private int requestedDuration = -1;
+    private long expectedCloseTime = Long.MAX_VALUE;
+    private boolean renderScheduled;
 
+    private transient CompletableFuture<Notification> openedFuture;
+    private transient CompletableFuture<Notification> closedFuture;
+
+    // Guarded by the session lock, like the fields above
     private SerializableConsumer<UI> deferredJob = new AttachComponentTemplate();
 
     private class AttachComponentTemplate implements SerializableConsumer<UI> {
@@ -70,6 +137,11 @@ public class Notification extends GeneratedVaadinNotification<Notification>
                         "<flow-component-renderer appid=\"%s\" nodeid=\"%s\"></flow-component-renderer>",
                         appId, nodeId);
                 templateElement.setProperty("innerHTML", template);
+                // Applied once, even if several callbacks were registered
+                deferredJob = NO_OP;
+                if (isOpened()) {
+                    render();
+                }
             }
         }
     }
@@ -113,6 +185,133 @@ public class Notification extends GeneratedVaadinNotification<Notification>
         }
     }
 
+    /**
+     * Enumeration of notification priorities, used for deciding which
+     * notifications to shed when the server is overloaded.
+     *
+     * @see NotificationAdmissionController
+     */
+    public enum Priority {
+        /**
+         * Dropped when the server is overloaded.
+         */
+        LOW,
+        /**
+         * Deferred when the server is overloaded, and dropped if the server
+         * stays overloaded. This is the default priority.
+         */
+        NORMAL,
+        /**
+         * Always opened.
+         */
+        CRITICAL;
+    }
+
+    /**
+     * Enumeration of policies for notifications opened while a UI already has
+     * the maximum number of notifications waiting for the client to
+     * acknowledge them.
+     *
+     * @see Notification#setPendingLimit(UI, int, OverflowPolicy)
+     */
+    public enum OverflowPolicy {
+        /**
+         * The oldest pending notification is closed to make room for the new
+         * one.
+         */
+        DROP_OLDEST,
+        /**
+         * The new notification is not opened.
+         */
+        DROP_NEWEST,
+        /**
+         * The new notification is not opened, but counted in a summary
+         * notification that is shown instead.
+         */
+        COALESCE;
+    }
+
+    /**
+     * Enumeration of the ways an opened notification can be delivered to the
+     * client when it is opened outside of a client request, for example in
+     * {@link UI#access(Command)} from a background thread with server push
+     * enabled.
+     *
+     * @see Notification#setDelivery(Delivery)
+     */
+    public enum Delivery {
+        /**
+         * Delivered like any other change, which with automatic push means
+         * when the session lock is released.
+         */
+        AUTOMATIC,
+        /**
+         * Pushed to the client right after being opened, for lowest latency.
+         */
+        IMMEDIATE,
+        /**
+         * Delivered with the next response to the client, or at the latest
+         * when the coalescing window of the UI expires, so that several
+         * notifications share one push message.
+         *
+         * @see Notification#setPiggybackWindow(UI, Duration)
+         */
+        PIGGYBACK;
+    }
+
+    /**
+     * Event fired on a UI once per round trip, with all notifications of the
+     * UI that were opened or closed during it.
+     *
+     * @see Notification#addOpenedChangeBatchListener(UI,
+     *      ComponentEventListener)
+     */
+    public static class OpenedChangeBatchEvent extends ComponentEvent<UI> {
+        private final List<Notification> opened;
+        private final List<Notification> closed;
+
+        /**
+         * Creates a new event.
+         *
+         * @param source
+         *            the UI of the notifications
+         * @param fromClient
+         *            {@code true} if at least one transition was reported by
+         *            the client
+         * @param opened
+         *            the notifications that were opened
+         * @param closed
+         *            the notifications that were closed
+         */
+        public OpenedChangeBatchEvent(UI source, boolean fromClient,
+                List<Notification> opened, List<Notification> closed) {
+            super(source, fromClient);
+            this.opened = Collections.unmodifiableList(opened);
+            this.closed = Collections.unmodifiableList(closed);
+        }
+
+        /**
+         * Gets the notifications that were opened during the round trip, in
+         * the order they were opened.
+         *
+         * @return the opened notifications
+         */
+        public List<Notification> getOpened() {
+            return opened;
+        }
+
+        /**
+         * Gets the notifications that were closed during the round trip, in
+         * the order they were closed, whether they were closed on the server
+         * or by the client.
+         *
+         * @return the closed notifications
+         */
+        public List<Notification> getClosed() {
+            return closed;
+        }
+    }
+
     /**
      * Default constructor. Create an empty notification with component support
      * and non-auto-closing
@@ -196,15 +395,130 @@ public class Notification extends GeneratedVaadinNotification<Notification>
         getElement().appendChild(templateElement);
         getElement().appendVirtualChild(container);
 
-        getElement().addEventListener("opened-changed", event -> {
-            if (autoAddedToTheUi && !isOpened()) {
-                getElement().removeFromParent();
-                autoAddedToTheUi = false;
-            }
-        });
+        getElement().addEventListener("opened-changed",
+                event -> onOpenedChanged());
 
     }
 
+    private void onOpenedChanged() {
+        getUI().map(PendingNotifications::get)
+                .ifPresent(pending -> pending.acknowledge(this));
+        if (isOpened()) {
+            getUI().ifPresent(ui -> registerOpened(ui, true));
+            complete(openedFuture);
+        } else {
+            onClosed();
+        }
+    }
+
+    /**
+     * Handles an {@code opened-changed} event that the client delegated to
+     * the UI instead of sending it for this notification, as the
+     * {@code opened-changed} listener does for other notifications.
+     *
+     * @param opened
+     *            the opened state reported by the client
+     */
+    void openedChangedFromClient(boolean opened) {
+        if (isOpened() != opened) {
+            // The client does not synchronize the property in this mode
+            setOpenedFromClient(opened);
+        }
+        onOpenedChanged();
+    }
+
+    /**
+     * Updates the opened property to the state the client already has,
+     * without sending the change back to the client.
+     */
+    private void setOpenedFromClient(boolean opened) {
+        getElement().getNode().getFeature(ElementPropertyMap.class)
+                .setProperty("opened", opened, false);
+    }
+
+    private void onClosed() {
+        if (requestedDuration >= 0) {
+            setDuration(requestedDuration);
+            requestedDuration = -1;
+        }
+        getUI().ifPresent(ui -> registerClosed(ui, true));
+        complete(closedFuture);
+        if (autoAddedToTheUi && !recycle()) {
+            discard();
+        }
+    }
+
+    /**
+     * Cleans up a notification in lazy close mode once it is closed on the
+     * client, as the {@code opened-changed} listener does for other
+     * notifications.
+     */
+    void finishLazyClose() {
+        expectedCloseTime = Long.MAX_VALUE;
+        getUI().map(PendingNotifications::get)
+                .ifPresent(pending -> pending.acknowledge(this));
+        if (isOpened()) {
+            // Only brings the server in sync, the client is already closed
+            setOpenedFromClient(false);
+        }
+        onClosed();
+    }
+
+    /**
+     * Gets the time by which this notification is expected to be closed on
+     * the client, when in lazy close mode.
+     *
+     * @return the time in milliseconds, or {@link Long#MAX_VALUE} if not known
+     */
+    long getExpectedCloseTime() {
+        return expectedCloseTime;
+    }
+
+    private void registerOpened(UI ui, boolean fromClient) {
+        if (OpenNotifications.getOrCreate(ui).add(this)) {
+            OpenedChangeBatch.record(ui, this, true, fromClient);
+        }
+    }
+
+    private void registerClosed(UI ui, boolean fromClient) {
+        OpenNotifications registry = OpenNotifications.get(ui);
+        if (registry != null && registry.remove(this)) {
+            OpenedChangeBatch.record(ui, this, false, fromClient);
+        }
+    }
+
+    private void complete(CompletableFuture<Notification> future) {
+        if (future != null) {
+            future.complete(this);
+        }
+    }
+
+    /**
+     * Hands this notification over to the pool of its UI, if it was created by
+     * {@link #show(String, int, Position)} and the UI has pooling enabled.
+     *
+     * @return {@code true} if the notification was pooled and should stay
+     *         attached, {@code false} otherwise
+     */
+    private boolean recycle() {
+        if (!recyclable) {
+            return false;
+        }
+        NotificationPool pool = getUI().map(NotificationPool::get)
+                .orElse(null);
+        return pool != null && pool.offer(this);
+    }
+
+    /**
+     * Removes this notification from the UI it was automatically added to.
+     */
+    void discard() {
+        if (autoAddedToTheUi) {
+            getElement().removeFromParent();
+            autoAddedToTheUi = false;
+        }
+    }
+
     /**
      * Shows a notification in the current page with given text, duration and
      * position.
@@ -221,11 +535,28 @@ public class Notification extends GeneratedVaadinNotification<Notification>
      */
     public static Notification show(String text, int duration,
             Position position) {
-        Notification notification = new Notification(text, duration, position);
+        Notification notification = create(text, duration, position);
         notification.open();
         return notification;
     }
 
+    private static Notification create(String text, int duration,
+            Position position) {
+        UI ui = UI.getCurrent();
+        NotificationPool pool = ui == null ? null : NotificationPool.get(ui);
+        Notification notification = pool == null ? null : pool.poll();
+        if (notification == null) {
+            notification = new Notification(text, duration, position);
+            notification.recyclable = true;
+        } else {
+            notification.setText(text);
+            notification.getThemeNames().clear();
+            notification.setDuration(duration);
+            notification.setPosition(position);
+        }
+        return notification;
+    }
+
     /**
      * Shows a notification in the current page with given text.
      * <p>
@@ -242,6 +573,438 @@ public class Notification extends GeneratedVaadinNotification<Notification>
         return show(text, DEFAULT_DURATION, DEFAULT_POSITION);
     }
 
+    /**
+     * Shows a notification in the given UI with given text, duration and
+     * position. This method can be called from any thread.
+     * <p>
+     * The notification is opened through {@link UI#access(Command)}, so the
+     * calling thread neither needs {@link UI#getCurrent()} nor blocks on the
+     * session lock. The returned future completes once the client has
+     * confirmed that the notification is open, and {@link #whenClosed()} of
+     * the notification can be used to continue when it closes. Both futures
+     * complete exceptionally with an {@link UIDetachedException} if the UI is
+     * detached before that, also when it is detached before the notification
+     * could be opened. If the notification is closed on the server before the
+     * client has confirmed it, or not opened at all, for example because it
+     * is dropped while the server is overloaded, the returned future is
+     * cancelled and {@link #whenClosed()} completes.
+     * <p>
+     * Note: Dependent actions of the futures are run by the thread that
+     * completes them, which holds the session lock. Use the {@code async}
+     * variants of the {@link CompletableFuture} methods for anything that may
+     * take time.
+     *
+     * @param ui
+     *            the UI to show the notification in, not {@code null}
+     * @param text
+     *            the text of the Notification
+     * @param duration
+     *            the duration in milliseconds to show the notification
+     * @param position
+     *            the position of the notification. Valid enumerate values are
+     *            TOP_STRETCH, TOP_START, TOP_CENTER, TOP_END, MIDDLE,
+     *            BOTTOM_START, BOTTOM_CENTER, BOTTOM_END, BOTTOM_STRETCH
+     * @return a future completed with the notification once the client has
+     *         opened it
+     */
+    public static CompletableFuture<Notification> showAsync(UI ui,
+            String text, int duration, Position position) {
+        Objects.requireNonNull(ui, "UI should not be null");
+        CompletableFuture<Notification> opened = new CompletableFuture<>();
+        // The detach handler also covers a UI detached before the task runs
+        ui.accessLater(() -> {
+            try {
+                Notification notification = create(text, duration,
+                        position);
+                notification.openedFuture = opened;
+                // A pooled instance still has the future of its previous use
+                CompletableFuture<Notification> closed = new CompletableFuture<>();
+                notification.closedFuture = closed;
+                Registration registration = ui.addDetachListener(event -> {
+                    opened.completeExceptionally(new UIDetachedException());
+                    closed.completeExceptionally(new UIDetachedException());
+                });
+                closed.whenComplete((result, error) -> registration.remove());
+                notification.open();
+            } catch (RuntimeException e) {
+                opened.completeExceptionally(e);
+                throw e;
+            }
+        }, () -> opened.completeExceptionally(new UIDetachedException()))
+                .run();
+        return opened;
+    }
+
+    /**
+     * Shows a notification in the given UI with given text. This method can be
+     * called from any thread.
+     * <p>
+     * This is the convenience method for
+     * {@link #showAsync(UI, String, int, Position)} which uses default
+     * web-component values for duration (which is 5000 ms) and position
+     * ({@literal Position.BOTTOM_START}).
+     *
+     * @param ui
+     *            the UI to show the notification in, not {@code null}
+     * @param text
+     *            the text of the Notification
+     * @return a future completed with the notification once the client has
+     *         opened it
+     */
+    public static CompletableFuture<Notification> showAsync(UI ui,
+            String text) {
+        return showAsync(ui, text, DEFAULT_DURATION, DEFAULT_POSITION);
+    }
+
+    /**
+     * Gets a future that completes when this notification is closed, either
+     * when the client reports that it has closed automatically after its
+     * duration, or when {@link #close()} is called on the server.
+     * <p>
+     * The future also completes when opening the notification is skipped,
+     * for example because it is dropped while the server is overloaded. If the
+     * notification is opened again after the returned future has completed, a
+     * new future is returned for the next close.
+     *
+     * @return a future completed with this notification once it is closed
+     */
+    public CompletableFuture<Notification> whenClosed() {
+        if (closedFuture == null || closedFuture.isDone() && isOpened()) {
+            closedFuture = new CompletableFuture<>();
+        }
+        return closedFuture;
+    }
+
+    /**
+     * Limits the number of notifications in the given UI that have been opened
+     * on the server, but whose opening the client has not yet acknowledged.
+     * <p>
+     * A client that falls behind, for example because of a slow network or a
+     * throttled background tab, otherwise makes opened notifications pile up
+     * on the server. Once the limit is reached, opening another notification
+     * is handled according to the given policy. With
+     * {@link OverflowPolicy#COALESCE}, the summary notification reads
+     * <em>"N more notifications"</em>.
+     *
+     * @param ui
+     *            the UI to configure, not {@code null}
+     * @param limit
+     *            the maximum number of unacknowledged notifications, or
+     *            {@code 0} for no limit
+     * @param policy
+     *            the policy for notifications opened above the limit, not
+     *            {@code null}
+     */
+    public static void setPendingLimit(UI ui, int limit,
+            OverflowPolicy policy) {
+        Objects.requireNonNull(ui, "UI should not be null");
+        Objects.requireNonNull(policy, "Policy should not be null");
+        PendingNotifications.setLimit(ui, limit, policy,
+                count -> count + " more notifications");
+    }
+
+    /**
+     * Limits the number of notifications in the given UI that have been opened
+     * on the server, but whose opening the client has not yet acknowledged.
+     * Notifications opened above the limit are coalesced into a summary
+     * notification with the given text.
+     *
+     * @param ui
+     *            the UI to configure, not {@code null}
+     * @param limit
+     *            the maximum number of unacknowledged notifications, or
+     *            {@code 0} for no limit
+     * @param summaryText
+     *            function returning the text of the summary notification for
+     *            the number of coalesced notifications, not {@code null}
+     * @see #setPendingLimit(UI, int, OverflowPolicy)
+     */
+    public static void setPendingLimit(UI ui, int limit,
+            SerializableFunction<Integer, String> summaryText) {
+        Objects.requireNonNull(ui, "UI should not be null");
+        Objects.requireNonNull(summaryText,
+                "Summary text function should not be null");
+        PendingNotifications.setLimit(ui, limit, OverflowPolicy.COALESCE,
+                summaryText);
+    }
+
+    /**
+     * Adds a listener that is notified once per round trip about all
+     * notifications opened or closed in the given UI during it. A single
+     * listener can replace an {@link #addOpenedChangeListener} registration
+     * on each notification.
+     * <p>
+     * A notification that is opened and closed during the same round trip is
+     * included in both lists of the event.
+     * <p>
+     * While the UI has a listener, the client does not send the
+     * {@code opened-changed} events of the notifications opened in it one by
+     * one. It collects the events of all these notifications and sends them
+     * in one batched event on the UI, which is routed to the notifications on
+     * the server. Changes reported this way reach the opened change listeners
+     * of a notification as changes made on the server.
+     *
+     * @param ui
+     *            the UI to listen to, not {@code null}
+     * @param listener
+     *            the listener to add, not {@code null}
+     * @return a handle that can be used for removing the listener
+     */
+    public static Registration addOpenedChangeBatchListener(UI ui,
+            ComponentEventListener<OpenedChangeBatchEvent> listener) {
+        Objects.requireNonNull(ui, "UI should not be null");
+        Objects.requireNonNull(listener, "Listener should not be null");
+        return ComponentUtil.addListener(ui, OpenedChangeBatchEvent.class,
+                listener);
+    }
+
+    /**
+     * Sets the time by which this notification must reach the client to still
+     * be useful.
+     * <p>
+     * A notification opened after the deadline stays closed. A notification
+     * that is queued or deferred before it is sent, for example by
+     * {@link Delivery#PIGGYBACK} delivery or by overload protection, is
+     * cancelled if the deadline passes before it is sent. Otherwise, the
+     * time it waited is subtracted from its duration, so that it still closes
+     * when it would have if sent right away. {@link #getDuration()} returns
+     * the reduced duration while the notification is open.
+     *
+     * @param deliverBy
+     *            the deadline, or {@code null} for no deadline
+     */
+    public void setDeliverBy(Instant deliverBy) {
+        this.deliverBy = deliverBy;
+    }
+
+    /**
+     * Gets the time by which this notification must reach the client.
+     *
+     * @return the deadline, or {@code null} if there is none
+     * @see #setDeliverBy(Instant)
+     */
+    public Instant getDeliverBy() {
+        return deliverBy;
+    }
+
+    /**
+     * Sets how this notification is delivered to the client when it is opened
+     * outside of a client request with server push enabled. Notifications
+     * opened while handling a client request are always sent with its
+     * response.
+     *
+     * @param delivery
+     *            the delivery, not {@code null}
+     */
+    public void setDelivery(Delivery delivery) {
+        this.delivery = Objects.requireNonNull(delivery,
+                "Delivery should not be null");
+    }
+
+    /**
+     * Gets how this notification is delivered to the client.
+     *
+     * @return the delivery
+     * @see #setDelivery(Delivery)
+     */
+    public Delivery getDelivery() {
+        return delivery;
+    }
+
+    /**
+     * Sets the maximum time notifications with
+     * {@link Delivery#PIGGYBACK} delivery in the given UI wait for the next
+     * response to the client before they are pushed anyway. The default is
+     * one second.
+     *
+     * @param ui
+     *            the UI to configure, not {@code null}
+     * @param window
+     *            the coalescing window, not {@code null} or negative
+     */
+    public static void setPiggybackWindow(UI ui, Duration window) {
+        Objects.requireNonNull(ui, "UI should not be null");
+        Objects.requireNonNull(window, "Window should not be null");
+        if (window.isNegative()) {
+            throw new IllegalArgumentException("Window cannot be negative");
+        }
+        PiggybackQueue.getOrCreate(ui).setWindow(window.toMillis());
+    }
+
+    /**
+     * Sets how long the client in the given UI collects closed notifications
+     * in lazy close mode before acknowledging them to the server in one
+     * request. The default interval is 10 seconds.
+     * <p>
+     * A longer interval saves requests, while a shorter one lets the server
+     * clean up closed notifications sooner. Notifications whose duration has
+     * passed are also cleaned up by the server on its own, regardless of the
+     * interval.
+     *
+     * @param ui
+     *            the UI to configure, not {@code null}
+     * @param interval
+     *            the batch interval, not {@code null} or negative
+     * @see #setLazyClose(boolean)
+     */
+    public static void setLazyCloseBatchInterval(UI ui, Duration interval) {
+        Objects.requireNonNull(ui, "UI should not be null");
+        Objects.requireNonNull(interval, "Interval should not be null");
+        if (interval.isNegative()) {
+            throw new IllegalArgumentException("Interval cannot be negative");
+        }
+        ui.getPage().executeJs(
+                "window.Vaadin.Flow.notificationLazyClose.batchTimeout = $0",
+                interval.toMillis());
+    }
+
+    /**
+     * Sets whether the client closes this notification without reporting it
+     * to the server right away.
+     * <p>
+     * By default, the client sends a request when a notification closes
+     * after its duration, so that the server can update its state and remove
+     * a notification added by {@link #open()} from the UI. In lazy close mode,
+     * the client only acknowledges closed notifications in batches, see
+     * {@link #setLazyCloseBatchInterval(UI, Duration)}, and the server also
+     * cleans up notifications whose duration has passed whenever another
+     * notification is opened or closed in the UI, and at the start of each
+     * request to the session. This saves a request per notification for
+     * fire-and-forget notifications.
+     * <p>
+     * Note: In lazy close mode, {@link #isOpened()}, the opened change
+     * listeners and {@link #whenClosed()} only reflect that the notification
+     * has closed after it has been cleaned up.
+     *
+     * @param lazyClose
+     *            {@code true} to enable lazy close mode, {@code false} to
+     *            disable it
+     */
+    public void setLazyClose(boolean lazyClose) {
+        if (this.lazyClose == lazyClose) {
+            return;
+        }
+        this.lazyClose = lazyClose;
+        if (lazyClose) {
+            getElement().setAttribute(LAZY_CLOSE_ATTRIBUTE, "");
+            UI ui = getUI().orElseGet(UI::getCurrent);
+            if (isOpened() && ui != null) {
+                trackLazyClose(ui);
+            }
+        } else {
+            getElement().removeAttribute(LAZY_CLOSE_ATTRIBUTE);
+            expectedCloseTime = Long.MAX_VALUE;
+            getUI().map(LazyCloseTracker::get)
+                    .ifPresent(tracker -> tracker.untrack(this));
+        }
+    }
+
+    /**
+     * Gets whether this notification is in lazy close mode.
+     *
+     * @return {@code true} if in lazy close mode, {@code false} otherwise
+     * @see #setLazyClose(boolean)
+     */
+    public boolean isLazyClose() {
+        return lazyClose;
+    }
+
+    /**
+     * Gets the notifications that are open in the given UI, wherever they are
+     * in the component tree. The component tree is not traversed.
+     *
+     * @param ui
+     *            the UI to get the open notifications of, not {@code null}
+     * @return the open notifications, in no particular order
+     */
+    public static List<Notification> getOpen(UI ui) {
+        Objects.requireNonNull(ui, "UI should not be null");
+        OpenNotifications registry = OpenNotifications.get(ui);
+        return registry == null ? Collections.emptyList()
+                : registry.getAll();
+    }
+
+    /**
+     * Gets the number of notifications that are open in the given UI.
+     *
+     * @param ui
+     *            the UI to count the open notifications of, not {@code null}
+     * @return the number of open notifications
+     */
+    public static int getOpenCount(UI ui) {
+        Objects.requireNonNull(ui, "UI should not be null");
+        OpenNotifications registry = OpenNotifications.get(ui);
+        return registry == null ? 0 : registry.size();
+    }
+
+    /**
+     * Finds the open notification with the given id in the given UI.
+     *
+     * @param ui
+     *            the UI to look in, not {@code null}
+     * @param id
+     *            the id of the notification, not {@code null}
+     * @return the open notification with the id, or an empty optional if
+     *         there is none
+     * @see #setId(String)
+     */
+    public static Optional<Notification> findOpen(UI ui, String id) {
+        Objects.requireNonNull(ui, "UI should not be null");
+        Objects.requireNonNull(id, "Id should not be null");
+        OpenNotifications registry = OpenNotifications.get(ui);
+        return registry == null ? Optional.empty() : registry.find(id);
+    }
+
+    /**
+     * Closes all notifications that are open in the given UI, wherever they
+     * are in the component tree. Must be called while holding the session
+     * lock of the UI, which does not need to be the current UI.
+     *
+     * @param ui
+     *            the UI to close the notifications of, not {@code null}
+     */
+    public static void closeAll(UI ui) {
+        getOpen(ui).forEach(notification -> notification.setOpened(ui, false));
+    }
+
+    /**
+     * Sets the number of closed notifications that
+     * {@link #show(String, int, Position)} keeps in the given UI for reuse.
+     * <p>
+     * By default there is no pool and every call to
+     * {@link #show(String, int, Position)} creates a new notification that is
+     * removed from the UI once the client closes it. With a pool, closed
+     * notifications stay attached but hidden, and the next call reuses one of
+     * them after resetting its text, theme variants, duration and position.
+     * <p>
+     * Note: Only enable pooling if the notifications returned by
+     * {@link #show(String, int, Position)} are not customized or kept after
+     * they close, since the same instance may be returned again later.
+     *
+     * @param ui
+     *            the UI to configure, not {@code null}
+     * @param capacity
+     *            the maximum number of idle notifications to keep, or
+     *            {@code 0} to disable pooling
+     */
+    public static void setPoolCapacity(UI ui, int capacity) {
+        Objects.requireNonNull(ui, "UI should not be null");
+        NotificationPool.setCapacity(ui, capacity);
+    }
+
+    @Override
+    public void setId(String id) {
+        String oldId = getId().orElse(null);
+        super.setId(id);
+        // Not attached yet if opened during the current round trip
+        UI ui = getUI().orElseGet(UI::getCurrent);
+        OpenNotifications registry = ui == null ? null
+                : OpenNotifications.get(ui);
+        if (registry != null) {
+            registry.updateId(this, oldId, id);
+        }
+    }
+
     /**
      * Set the text of the notification with given String
      * <p>
@@ -253,9 +1016,57 @@ public class Notification extends GeneratedVaadinNotification<Notification>
      *            the text of the Notification
      */
     public void setText(String text) {
+        checkAccess(getUI().orElse(null));
         removeAll();
         deferredJob = NO_OP;
+        this.text = text;
         templateElement.setProperty("innerHTML", HtmlUtils.escape(text));
+        if (isOpened()) {
+            // The card of an open notification does not observe the template
+            render();
+        }
+    }
+
+    /**
+     * Set the content of the notification with given HTML. Elements and
+     * attributes that are not allowed by the
+     * {@link NotificationHtmlSanitizer} are removed, by default everything
+     * except simple text formatting, lists and links.
+     * <p>
+     * This is much lighter than showing the same content with components, as
+     * the markup is sent to the client as a single property.
+     * <p>
+     * NOTE: When mixing this method with {@link #Notification()} and
+     * {@link #Notification(Component...)}. Method will remove all the
+     * components from the notification.
+     *
+     * @param html
+     *            the HTML content of the Notification
+     * @see NotificationHtmlSanitizer
+     */
+    public void setHtml(String html) {
+        checkAccess(getUI().orElse(null));
+        removeAll();
+        deferredJob = NO_OP;
+        NotificationHtmlSanitizer.Sanitized sanitized = NotificationHtmlSanitizer
+                .getInstance().sanitizeWithText(html);
+        this.text = sanitized.getText();
+        templateElement.setProperty("innerHTML", sanitized.getHtml());
+        if (isOpened()) {
+            // The card of an open notification does not observe the template
+            render();
+        }
+    }
+
+    /**
+     * Gets the text set with {@link #setText(String)}, or the text content of
+     * the HTML set with {@link #setHtml(String)}.
+     *
+     * @return the text of the notification, or {@code null} if the
+     *         notification shows components instead
+     */
+    String getTextContent() {
+        return text;
     }
 
     /**
@@ -301,6 +1112,69 @@ public class Notification extends GeneratedVaadinNotification<Notification>
         setOpened(true);
     }
 
+    /**
+     * Opens the notification in the given UI after the given delay.
+     * <p>
+     * The delay is measured by a timer shared by all UIs of the service, with
+     * a resolution of 100 ms, so scheduling a large number of notifications
+     * does not create any threads or timers per UI. The scheduled opening is
+     * cancelled if the UI is detached before the delay has passed.
+     * <p>
+     * This method must be called while holding the session lock, for example
+     * from {@link UI#access(Command)}.
+     *
+     * @param ui
+     *            the UI to open the notification in, not {@code null}
+     * @param delay
+     *            the delay after which to open the notification, not
+     *            {@code null}
+     * @return a handle that can be used for cancelling the scheduled opening
+     */
+    public Registration scheduleOpen(UI ui, Duration delay) {
+        Objects.requireNonNull(ui, "UI should not be null");
+        Objects.requireNonNull(delay, "Delay should not be null");
+        VaadinSession session = ui.getSession();
+        NotificationScheduler scheduler = NotificationScheduler
+                .get(session == null ? null : session.getService());
+
+        AtomicReference<Registration> detachRegistration = new AtomicReference<>();
+        Registration task = scheduler
+                .schedule(Math.max(0, delay.toMillis()), () -> {
+                    try {
+                        ui.access(() -> {
+                            detachRegistration.get().remove();
+                            open();
+                        });
+                    } catch (UIDetachedException e) {
+                        // The UI has been closed, there is nothing to open
+                    }
+                });
+        detachRegistration.set(ui.addDetachListener(event -> task.remove()));
+        return () -> {
+            task.remove();
+            detachRegistration.get().remove();
+        };
+    }
+
+    /**
+     * Opens the notification in the given UI at the given time. If the time
+     * has already passed, the notification is opened as soon as possible.
+     * <p>
+     * This method must be called while holding the session lock, for example
+     * from {@link UI#access(Command)}.
+     *
+     * @param ui
+     *            the UI to open the notification in, not {@code null}
+     * @param time
+     *            the time at which to open the notification, not {@code null}
+     * @return a handle that can be used for cancelling the scheduled opening
+     * @see #scheduleOpen(UI, Duration)
+     */
+    public Registration scheduleOpen(UI ui, Instant time) {
+        Objects.requireNonNull(time, "Time should not be null");
+        return scheduleOpen(ui, Duration.between(Instant.now(), time));
+    }
+
     /**
      * Closes the notification.
      * <p>
@@ -330,6 +1204,7 @@ public class Notification extends GeneratedVaadinNotification<Notification>
     @Override
     public void add(Component... components) {
         Objects.requireNonNull(components, "Components should not be null");
+        checkAccess(getUI().orElse(null));
         for (Component component : components) {
             Objects.requireNonNull(component,
                     "Component to add cannot be null");
@@ -346,6 +1221,7 @@ public class Notification extends GeneratedVaadinNotification<Notification>
      */
     @Override
     public void remove(Component... components) {
+        checkAccess(getUI().orElse(null));
         for (Component component : components) {
             Objects.requireNonNull(component,
                     "Component to remove cannot be null");
@@ -378,6 +1254,7 @@ public class Notification extends GeneratedVaadinNotification<Notification>
     @Override
     public void addComponentAtIndex(int index, Component component) {
         Objects.requireNonNull(component, "Component should not be null");
+        checkAccess(getUI().orElse(null));
         if (index < 0) {
             throw new IllegalArgumentException(
                     "Cannot add a component with a negative index");
@@ -394,6 +1271,7 @@ public class Notification extends GeneratedVaadinNotification<Notification>
      */
     @Override
     public void removeAll() {
+        checkAccess(getUI().orElse(null));
         container.removeAllChildren();
     }
 
@@ -412,6 +1290,10 @@ public class Notification extends GeneratedVaadinNotification<Notification>
      * Since {@code <vaadin-notification>}'s location in the DOM doesn't really
      * matter, opening a notification will automatically add it to the
      * {@code <body>} if it's not yet attached anywhere.
+     * <p>
+     * Opening a closed notification while the server is overloaded may be
+     * deferred or skipped depending on its {@link #getPriority() priority}, see
+     * {@link NotificationAdmissionController}.
      *
      * @param opened
      *            {@code true} to open the notification, {@code false} to close
@@ -427,13 +1309,235 @@ public class Notification extends GeneratedVaadinNotification<Notification>
                     + "That may happen if you call the method from the custom thread without "
                     + "'UI::access' or from tests without proper initialization.");
         }
+        setOpened(ui, opened);
+    }
+
+    /**
+     * Opens or closes the notification in the given UI, which does not need to
+     * be the current UI.
+     *
+     * @param ui
+     *            the UI to open the notification in or close it from, not
+     *            {@code null}
+     * @param opened
+     *            {@code true} to open the notification, {@code false} to close
+     *            it
+     */
+    void setOpened(UI ui, boolean opened) {
+        checkAccess(ui);
+        LazyCloseTracker lazyCloseTracker = LazyCloseTracker.get(ui);
+        if (lazyCloseTracker != null) {
+            // Piggybacks the cleanup of lazily closed notifications
+            lazyCloseTracker.sweep(System.currentTimeMillis());
+            if (opened && lazyClose && isOpened()) {
+                // May already be closed on the client, open it again
+                lazyCloseTracker.untrack(this);
+                finishLazyClose();
+            }
+        }
+        if (opened && !isOpened() && deliverBy != null) {
+            long now = System.currentTimeMillis();
+            if (openRequestedAt == 0) {
+                openRequestedAt = now;
+            }
+            if (now > deliverBy.toEpochMilli()) {
+                skipOpening();
+                return;
+            }
+        } else if (!opened) {
+            openRequestedAt = 0;
+        }
+        PiggybackQueue piggybackQueue = PiggybackQueue.get(ui);
+        if (opened && !isOpened() && delivery == Delivery.PIGGYBACK
+                && isPushedOutsideRequest(ui)
+                && (piggybackQueue == null || !piggybackQueue.isFlushing())) {
+            PiggybackQueue.getOrCreate(ui).add(ui, this);
+            return;
+        } else if (!opened && piggybackQueue != null) {
+            piggybackQueue.remove(this);
+        }
+        PendingNotifications pending = PendingNotifications.get(ui);
+        if (opened && !isOpened()) {
+            VaadinSession session = ui.getSession();
+            NotificationAdmissionController controller = NotificationAdmissionController
+                    .get(session == null ? null : session.getService());
+            if (!admit(ui, controller)) {
+                return;
+            }
+            if (pending != null && !pending.admit(this)) {
+                skipOpening();
+                return;
+            }
+            controller.countOpened();
+            NotificationHistory.record(ui, this);
+            registerOpened(ui, false);
+            loadModules(ui);
+            if (lazyClose) {
+                trackLazyClose(ui);
+            }
+            if (ComponentUtil.hasEventListener(ui,
+                    OpenedChangeBatchEvent.class)) {
+                getElement().setAttribute(OPENED_CHANGE_BATCH_ATTRIBUTE,
+                        OpenedChangeDelegation.getOrCreate(ui).delegate(this));
+            }
+            if (deliverBy != null) {
+                // Registered before adding to the UI, so it runs first
+                ui.beforeClientResponse(ui, context -> checkDeadline());
+            }
+        } else if (!opened) {
+            if (pending != null) {
+                pending.acknowledge(this);
+            }
+            registerClosed(ui, false);
+            if (lazyClose && isOpened()) {
+                // The client does not report the close, clean up later
+                expectedCloseTime = System.currentTimeMillis();
+            }
+        }
         if (opened && getElement().getNode().getParent() == null) {
             ui.beforeClientResponse(ui, context -> {
-                ui.add(this);
-                autoAddedToTheUi = true;
+                // Closed again before the response, no need to send it
+                if (isOpened() && getElement().getNode().getParent() == null) {
+                    ui.add(this);
+                    autoAddedToTheUi = true;
+                }
             });
         }
+        boolean wasOpened = isOpened();
         super.setOpened(opened);
+        if (opened && !wasOpened && delivery == Delivery.IMMEDIATE
+                && isPushedOutsideRequest(ui)) {
+            ui.push();
+        } else if (!opened) {
+            // The client may never report it, e.g. when still unacknowledged
+            settle();
+        }
+    }
+
+    private void checkDeadline() {
+        long requestedAt = openRequestedAt;
+        openRequestedAt = 0;
+        if (!isOpened() || deliverBy == null || requestedAt == 0) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long delay = now - requestedAt;
+        int duration = getDuration();
+        if (now > deliverBy.toEpochMilli()
+                || duration > 0 && delay >= duration) {
+            // Too late, never sent to the client
+            close();
+            onClosed();
+        } else if (duration > 0 && delay > 0) {
+            requestedDuration = duration;
+            setDuration((int) (duration - delay));
+        }
+    }
+
+    private static boolean isPushedOutsideRequest(UI ui) {
+        return VaadinRequest.getCurrent() == null
+                && ui.getPushConfiguration().getPushMode().isEnabled();
+    }
+
+    private void trackLazyClose(UI ui) {
+        int duration = getDuration();
+        expectedCloseTime = duration > 0
+                ? System.currentTimeMillis() + duration
+                        + LAZY_CLOSE_GRACE_MILLIS
+                : Long.MAX_VALUE;
+        getElement().setAttribute(LAZY_CLOSE_ATTRIBUTE,
+                LazyCloseTracker.getOrCreate(ui).track(this));
+    }
+
+    private static void loadModules(UI ui) {
+        if (ComponentUtil.getData(ui, MODULES_LOADED) != null) {
+            return;
+        }
+        ComponentUtil.setData(ui, MODULES_LOADED, Boolean.TRUE);
+        ui.addDetachListener(event -> {
+            ComponentUtil.setData(ui, MODULES_LOADED, null);
+            event.unregisterListener();
+        });
+        // The theme selects the themed module of the web component
+        AbstractTheme theme = ui.getInternals().getTheme();
+        ui.getPage().executeJs(
+                "window.Vaadin.Flow.notificationLoader.load($0)",
+                theme == null ? "" : theme.getThemeUrl());
+    }
+
+    private void skipOpening() {
+        openRequestedAt = 0;
+        settle();
+        // A pooled instance is still attached but no longer in the pool
+        if (autoAddedToTheUi && !recycle()) {
+            discard();
+        }
+    }
+
+    /**
+     * Settles the futures of a notification that is closed on the server or
+     * not sent to the client at all: the future of
+     * {@link #showAsync(UI, String)} is cancelled unless the client has
+     * already acknowledged the notification, and {@link #whenClosed()}
+     * completes.
+     */
+    private void settle() {
+        if (openedFuture != null) {
+            openedFuture.cancel(false);
+        }
+        complete(closedFuture);
+    }
+
+    /**
+     * Checks that the current thread holds the session lock of the given UI.
+     * UIs without a session, as in unit tests, are not checked.
+     */
+    private static void checkAccess(UI ui) {
+        VaadinSession session = ui == null ? null : ui.getSession();
+        if (session != null) {
+            session.checkHasLock("Notifications can only be modified while "
+                    + "holding the session lock, use UI.access(Command) "
+                    + "from background threads");
+        }
+    }
+
+    private boolean admit(UI ui, NotificationAdmissionController controller) {
+        switch (controller.admit(priority, deferrals)) {
+        case DEFER:
+            deferrals++;
+            scheduleOpen(ui, controller.getDeferDelay());
+            return false;
+        case DROP:
+            deferrals = 0;
+            skipOpening();
+            return false;
+        default:
+            deferrals = 0;
+            return true;
+        }
+    }
+
+    /**
+     * Sets the priority of the notification, which decides what happens to it
+     * when it is opened while the server is overloaded. The default priority
+     * is {@link Priority#NORMAL}.
+     *
+     * @param priority
+     *            the priority of the notification, not {@code null}
+     * @see NotificationAdmissionController
+     */
+    public void setPriority(Priority priority) {
+        this.priority = Objects.requireNonNull(priority,
+                "Priority should not be null");
+    }
+
+    /**
+     * Gets the priority of the notification.
+     *
+     * @return the priority of the notification, not {@code null}
+     */
+    public Priority getPriority() {
+        return priority;
     }
 
     /**
@@ -518,6 +1622,44 @@ public class Notification extends GeneratedVaadinNotification<Notification>
         return super.addDetachListener(listener);
     }
 
+    @Override
+    protected void onDetach(DetachEvent detachEvent) {
+        super.onDetach(detachEvent);
+        // Never acknowledged once removed, release its slot
+        PendingNotifications pending = PendingNotifications
+                .get(detachEvent.getUI());
+        if (pending != null) {
+            pending.acknowledge(this);
+        }
+        OpenedChangeDelegation delegation = OpenedChangeDelegation
+                .get(detachEvent.getUI());
+        if (delegation != null) {
+            delegation.undelegate(this);
+            getElement().removeAttribute(OPENED_CHANGE_BATCH_ATTRIBUTE);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The renderer is invoked at most once per response, however many times
+     * this method is called before it, and only once the web component has
+     * been defined in the browser.
+     */
+    @Override
+    protected void render() {
+        if (renderScheduled) {
+            return;
+        }
+        renderScheduled = true;
+        getElement().getNode().runWhenAttached(
+                ui -> ui.beforeClientResponse(this, context -> {
+                    renderScheduled = false;
+                    getElement().executeJs(
+                            "customElements.whenDefined(this.localName).then(() => this.render())");
+                }));
+    }
+
     /**
      * Adds theme variants to the component.
      *
@@ -543,6 +1685,7 @@ public class Notification extends GeneratedVaadinNotification<Notification>
     }
 
     private void attachComponentTemplate() {
+        text = null;
         deferredJob = new AttachComponentTemplate();
         getElement().getNode().runWhenAttached(ui -> ui
                 .beforeClientResponse(this, context -> deferredJob.accept(ui)));
@@ -0,0 +1,308 @@
+/*
+ * Copyright 2000-2019 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.notification;
+
+import java.io.Serializable;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import com.vaadin.flow.component.notification.Notification.Priority;
+import com.vaadin.flow.function.SerializableSupplier;
+import com.vaadin.flow.server.VaadinService;
+import com.vaadin.flow.shared.Registration;
+
+/**
+ * Decides whether notifications may be opened when the server is overloaded.
+ * <p>
+ * There is one controller per {@link VaadinService}, shared by all its
+ * sessions and available through {@link #get(VaadinService)}. By default no
+ * overload signal is configured and every notification is admitted. Once any
+ * of the configured signals reports overload, notifications with
+ * {@link Priority#LOW} are dropped, notifications with {@link Priority#NORMAL}
+ * are deferred and retried later, and notifications with
+ * {@link Priority#CRITICAL} are always opened. The check happens when a closed
+ * notification is opened, before anything is sent to the client.
+ *
+ * @author Vaadin Ltd
+ */
+public class NotificationAdmissionController implements Serializable {
+
+    private static final Map<VaadinService, NotificationAdmissionController> CONTROLLERS = new WeakHashMap<>();
+
+    // Pools that support usage thresholds hold the long-lived objects
+    private static final List<MemoryPoolMXBean> TENURED_POOLS = ManagementFactory
+            .getMemoryPoolMXBeans().stream()
+            .filter(pool -> pool.getType() == MemoryType.HEAP
+                    && pool.isUsageThresholdSupported()
+                    && pool.isCollectionUsageThresholdSupported())
+            .collect(Collectors.toList());
+
+    private static NotificationAdmissionController detachedController;
+
+    /**
+     * The outcome of an admission check.
+     */
+    public enum Decision {
+        /**
+         * The notification is opened.
+         */
+        ADMIT,
+        /**
+         * The notification is opened later, and checked again at that time.
+         */
+        DEFER,
+        /**
+         * The notification is not opened.
+         */
+        DROP;
+    }
+
+    private final List<SerializableSupplier<Boolean>> signals = new CopyOnWriteArrayList<>();
+    private volatile int maxRate;
+    private volatile double maxHeapOccupancy;
+    private volatile Duration deferDelay = Duration.ofSeconds(1);
+    private volatile int maxDeferrals = 3;
+
+    private final AtomicLong rateSecond = new AtomicLong();
+    private final AtomicInteger rateCount = new AtomicInteger();
+
+    NotificationAdmissionController() {
+    }
+
+    /**
+     * Gets the admission controller of the given service, creating it if
+     * needed.
+     *
+     * @param service
+     *            the service to get the controller for, or {@code null} to get
+     *            the controller of UIs without a service, as in unit tests
+     * @return the admission controller, not {@code null}
+     */
+    public static synchronized NotificationAdmissionController get(
+            VaadinService service) {
+        if (service == null) {
+            if (detachedController == null) {
+                detachedController = new NotificationAdmissionController();
+            }
+            return detachedController;
+        }
+        NotificationAdmissionController controller = CONTROLLERS.get(service);
+        if (controller == null) {
+            controller = new NotificationAdmissionController();
+            service.addServiceDestroyListener(event -> {
+                synchronized (NotificationAdmissionController.class) {
+                    CONTROLLERS.remove(service);
+                }
+            });
+            CONTROLLERS.put(service, controller);
+        }
+        return controller;
+    }
+
+    /**
+     * Sets the number of notifications per second that may be opened before
+     * the server is considered overloaded. The rate is counted over all
+     * sessions of the service in one second windows, and is approximate under
+     * contention. Only notifications that are actually opened are counted.
+     *
+     * @param maxRate
+     *            the maximum number of notifications per second, or {@code 0}
+     *            to not limit the rate
+     */
+    public void setMaxRate(int maxRate) {
+        if (maxRate < 0) {
+            throw new IllegalArgumentException(
+                    "Maximum rate cannot be negative");
+        }
+        this.maxRate = maxRate;
+    }
+
+    /**
+     * Gets the number of notifications per second that may be opened before
+     * the server is considered overloaded.
+     *
+     * @return the maximum number of notifications per second, or {@code 0} if
+     *         the rate is not limited
+     */
+    public int getMaxRate() {
+        return maxRate;
+    }
+
+    /**
+     * Sets the fraction of the maximum heap size that may be in use before
+     * the server is considered overloaded. The heap is checked as it was after
+     * the most recent garbage collection of the pools holding long-lived
+     * objects, so garbage that has not yet been collected does not count.
+     *
+     * @param maxHeapOccupancy
+     *            the maximum heap occupancy between {@code 0} and {@code 1},
+     *            or {@code 0} to not check the heap
+     */
+    public void setMaxHeapOccupancy(double maxHeapOccupancy) {
+        if (maxHeapOccupancy < 0 || maxHeapOccupancy > 1) {
+            throw new IllegalArgumentException(
+                    "Heap occupancy must be between 0 and 1");
+        }
+        this.maxHeapOccupancy = maxHeapOccupancy;
+    }
+
+    /**
+     * Gets the fraction of the maximum heap size that may be in use before
+     * the server is considered overloaded.
+     *
+     * @return the maximum heap occupancy, or {@code 0} if the heap is not
+     *         checked
+     */
+    public double getMaxHeapOccupancy() {
+        return maxHeapOccupancy;
+    }
+
+    /**
+     * Adds a custom overload signal, for example one that compares the depth
+     * of the application's push queue to a threshold. The signal is evaluated
+     * for every admission check, so it should be cheap.
+     *
+     * @param signal
+     *            a supplier returning {@code true} while the server is
+     *            overloaded, not {@code null}
+     * @return a handle that can be used for removing the signal
+     */
+    public Registration addOverloadSignal(SerializableSupplier<Boolean> signal) {
+        Objects.requireNonNull(signal, "Signal should not be null");
+        signals.add(signal);
+        return () -> signals.remove(signal);
+    }
+
+    /**
+     * Sets the delay after which a deferred notification is checked again.
+     *
+     * @param deferDelay
+     *            the delay, not {@code null}
+     */
+    public void setDeferDelay(Duration deferDelay) {
+        Objects.requireNonNull(deferDelay, "Delay should not be null");
+        this.deferDelay = deferDelay;
+    }
+
+    /**
+     * Gets the delay after which a deferred notification is checked again.
+     *
+     * @return the delay, not {@code null}
+     */
+    public Duration getDeferDelay() {
+        return deferDelay;
+    }
+
+    /**
+     * Sets how many times a notification may be deferred before it is dropped.
+     *
+     * @param maxDeferrals
+     *            the maximum number of deferrals, {@code 0} to drop
+     *            {@link Priority#NORMAL} notifications right away
+     */
+    public void setMaxDeferrals(int maxDeferrals) {
+        if (maxDeferrals < 0) {
+            throw new IllegalArgumentException(
+                    "Maximum deferrals cannot be negative");
+        }
+        this.maxDeferrals = maxDeferrals;
+    }
+
+    /**
+     * Gets how many times a notification may be deferred before it is dropped.
+     *
+     * @return the maximum number of deferrals
+     */
+    public int getMaxDeferrals() {
+        return maxDeferrals;
+    }
+
+    /**
+     * Checks whether any of the configured overload signals is exceeded.
+     *
+     * @return {@code true} if the server is overloaded, {@code false}
+     *         otherwise
+     */
+    public boolean isOverloaded() {
+        if (maxRate > 0 && getCurrentRate() >= maxRate) {
+            return true;
+        }
+        if (maxHeapOccupancy > 0 && isHeapOccupancyExceeded()) {
+            return true;
+        }
+        return signals.stream().anyMatch(signal -> Boolean.TRUE
+                .equals(signal.get()));
+    }
+
+    /**
+     * Decides whether a notification may be opened. The notification is not
+     * counted towards the rate, see {@link #countOpened()}.
+     *
+     * @param priority
+     *            the priority of the notification
+     * @param deferrals
+     *            how many times the notification has already been deferred
+     * @return the decision, not {@code null}
+     */
+    Decision admit(Priority priority, int deferrals) {
+        Decision decision = Decision.ADMIT;
+        if (priority != Priority.CRITICAL && isOverloaded()) {
+            decision = priority == Priority.NORMAL && deferrals < maxDeferrals
+                    ? Decision.DEFER
+                    : Decision.DROP;
+        }
+        return decision;
+    }
+
+    /**
+     * Counts a notification that has been opened towards the rate.
+     */
+    void countOpened() {
+        getCurrentRate();
+        rateCount.incrementAndGet();
+    }
+
+    private boolean isHeapOccupancyExceeded() {
+        for (MemoryPoolMXBean pool : TENURED_POOLS) {
+            MemoryUsage usage = pool.getCollectionUsage();
+            if (usage != null && usage.getMax() > 0
+                    && usage.getUsed() > maxHeapOccupancy * usage.getMax()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int getCurrentRate() {
+        long second = System.currentTimeMillis() / 1000;
+        long previous = rateSecond.get();
+        if (previous != second && rateSecond.compareAndSet(previous, second)) {
+            rateCount.set(0);
+        }
+        return rateCount.get();
+    }
+}
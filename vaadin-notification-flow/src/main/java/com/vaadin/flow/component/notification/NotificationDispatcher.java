@@ -0,0 +1,281 @@
+/*
+ * Copyright 2000-2019 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.notification;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.WeakHashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.UIDetachedException;
+import com.vaadin.flow.function.SerializableConsumer;
+import com.vaadin.flow.server.VaadinSession;
+
+/**
+ * Delivers notifications to UIs from background threads.
+ * <p>
+ * Each delivery runs the given task with the session lock held, using
+ * {@link UI#accessSynchronously(com.vaadin.flow.server.Command)} on a thread
+ * of the dispatcher's executor. Deliveries to the same session are limited to
+ * a fixed number running at a time, so a session whose lock is held for a long
+ * time only delays deliveries to its own UIs, while deliveries to other
+ * sessions continue on other threads.
+ * <p>
+ * {@link #create()} uses a virtual thread per delivery when running on Java 21
+ * or newer, where waiting for a session lock does not occupy a platform
+ * thread, and a bounded pool of platform threads otherwise. A delivery that
+ * the executor rejects, for example because the pool queue is full or the
+ * dispatcher has been {@link #shutdown() shut down}, completes its future
+ * exceptionally with a {@link RejectedExecutionException}.
+ *
+ * @author Vaadin Ltd
+ */
+public class NotificationDispatcher {
+
+    private static final int QUEUED_DELIVERIES_PER_THREAD = 100;
+
+    private final Executor executor;
+    private final ExecutorService defaultExecutor;
+    private final int maxConcurrencyPerSession;
+    private final Map<VaadinSession, SessionQueue> queues = Collections
+            .synchronizedMap(new WeakHashMap<>());
+
+    /**
+     * Queue of deliveries to one session, running at most a given number of
+     * them at a time.
+     */
+    static class SessionQueue {
+        private final Queue<Delivery> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger running = new AtomicInteger();
+        private final Executor executor;
+        private final int limit;
+
+        SessionQueue(Executor executor, int limit) {
+            this.executor = executor;
+            this.limit = limit;
+        }
+
+        void submit(Runnable task,
+                Consumer<RejectedExecutionException> onRejected) {
+            pending.add(new Delivery(task, onRejected));
+            drain();
+        }
+
+        private void drain() {
+            while (!pending.isEmpty()) {
+                int current = running.get();
+                if (current >= limit) {
+                    return;
+                }
+                if (!running.compareAndSet(current, current + 1)) {
+                    continue;
+                }
+                Delivery delivery = pending.poll();
+                if (delivery == null) {
+                    running.decrementAndGet();
+                    continue;
+                }
+                try {
+                    executor.execute(() -> {
+                        try {
+                            delivery.task.run();
+                        } finally {
+                            running.decrementAndGet();
+                            drain();
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    running.decrementAndGet();
+                    delivery.onRejected.accept(e);
+                }
+            }
+        }
+    }
+
+    private static class Delivery {
+        private final Runnable task;
+        private final Consumer<RejectedExecutionException> onRejected;
+
+        private Delivery(Runnable task,
+                Consumer<RejectedExecutionException> onRejected) {
+            this.task = task;
+            this.onRejected = onRejected;
+        }
+    }
+
+    /**
+     * Creates a dispatcher running deliveries on the given executor.
+     *
+     * @param executor
+     *            the executor to run deliveries on, not {@code null}
+     * @param maxConcurrencyPerSession
+     *            the maximum number of deliveries to the same session running
+     *            at a time
+     */
+    public NotificationDispatcher(Executor executor,
+            int maxConcurrencyPerSession) {
+        this(executor, null, maxConcurrencyPerSession);
+    }
+
+    private NotificationDispatcher(Executor executor,
+            ExecutorService defaultExecutor, int maxConcurrencyPerSession) {
+        this.executor = Objects.requireNonNull(executor,
+                "Executor should not be null");
+        this.defaultExecutor = defaultExecutor;
+        if (maxConcurrencyPerSession <= 0) {
+            throw new IllegalArgumentException(
+                    "Maximum concurrency per session must be positive");
+        }
+        this.maxConcurrencyPerSession = maxConcurrencyPerSession;
+    }
+
+    /**
+     * Creates a dispatcher running one delivery at a time per session, on
+     * virtual threads if they are available and otherwise on a pool of daemon
+     * platform threads sized by the number of available processors, with a
+     * bounded queue of waiting deliveries. Call {@link #shutdown()} when the
+     * dispatcher is no longer needed.
+     *
+     * @return a new dispatcher
+     */
+    public static NotificationDispatcher create() {
+        ExecutorService executor = createDefaultExecutor();
+        return new NotificationDispatcher(executor, executor, 1);
+    }
+
+    /**
+     * Shuts down the executor created by {@link #create()}. Deliveries already
+     * started are run, later ones complete exceptionally with a
+     * {@link RejectedExecutionException}. Does nothing for a dispatcher
+     * created with an executor of the caller, which remains responsible for
+     * shutting it down.
+     */
+    public void shutdown() {
+        if (defaultExecutor != null) {
+            defaultExecutor.shutdown();
+        }
+    }
+
+    /**
+     * Runs the given task for the given UI while holding its session lock.
+     * This method can be called from any thread and does not block.
+     *
+     * @param ui
+     *            the UI to deliver to, not {@code null}
+     * @param task
+     *            the task to run, for example opening a notification, not
+     *            {@code null}
+     * @return a future completed when the task has run, or completed
+     *         exceptionally if the task failed or the UI was detached
+     */
+    public CompletableFuture<Void> dispatch(UI ui,
+            SerializableConsumer<UI> task) {
+        Objects.requireNonNull(ui, "UI should not be null");
+        Objects.requireNonNull(task, "Task should not be null");
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        VaadinSession session = ui.getSession();
+        if (session == null) {
+            future.completeExceptionally(new UIDetachedException());
+            return future;
+        }
+        SessionQueue queue;
+        synchronized (queues) {
+            queue = queues.computeIfAbsent(session,
+                    key -> new SessionQueue(executor,
+                            maxConcurrencyPerSession));
+        }
+        queue.submit(() -> {
+            try {
+                ui.accessSynchronously(() -> task.accept(ui));
+                future.complete(null);
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        }, future::completeExceptionally);
+        return future;
+    }
+
+    /**
+     * Shows a notification with the given text in the given UI.
+     *
+     * @param ui
+     *            the UI to show the notification in, not {@code null}
+     * @param text
+     *            the text of the notification
+     * @return a future completed when the notification has been opened on the
+     *         server
+     * @see Notification#show(String)
+     */
+    public CompletableFuture<Void> show(UI ui, String text) {
+        return dispatch(ui, target -> Notification.show(text));
+    }
+
+    /**
+     * Runs the given task for each of the given UIs while holding their
+     * session locks.
+     *
+     * @param uis
+     *            the UIs to deliver to, not {@code null}
+     * @param task
+     *            the task to run for each UI, not {@code null}
+     * @return a future completed when the task has run for all UIs
+     */
+    public CompletableFuture<Void> broadcast(Collection<UI> uis,
+            SerializableConsumer<UI> task) {
+        return CompletableFuture.allOf(uis.stream()
+                .map(ui -> dispatch(ui, task))
+                .toArray(CompletableFuture[]::new));
+    }
+
+    private static ExecutorService createDefaultExecutor() {
+        try {
+            return (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            // Virtual threads are not available before Java 21
+            int threads = Runtime.getRuntime().availableProcessors() * 2;
+            AtomicInteger threadCount = new AtomicInteger();
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads,
+                    60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(
+                            threads * QUEUED_DELIVERIES_PER_THREAD),
+                    runnable -> {
+                        Thread thread = new Thread(runnable,
+                                "vaadin-notification-dispatcher-"
+                                        + threadCount.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            // Release the threads between bursts of deliveries
+            pool.allowCoreThreadTimeOut(true);
+            return pool;
+        }
+    }
+}
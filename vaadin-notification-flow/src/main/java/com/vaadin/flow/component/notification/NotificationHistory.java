@@ -0,0 +1,824 @@
+/*
+ * Copyright 2000-2019 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.notification;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.LoggerFactory;
+
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.notification.Notification.Position;
+import com.vaadin.flow.server.VaadinSession;
+
+/**
+ * History of the notifications shown in a {@link VaadinSession}, for
+ * implementing a notification center where users can see notifications they
+ * missed.
+ * <p>
+ * The history is a fixed-capacity ring buffer of compact records, one per
+ * opened notification, rather than of the notification components
+ * themselves. All storage is allocated up front, so the memory used by a
+ * session does not grow with the number of notifications apart from the
+ * notification texts, which are shared with the notifications. Once the
+ * buffer is full, the oldest records are evicted, and optionally appended to a
+ * spill file by a background thread.
+ * <p>
+ * The history is disabled by default, use
+ * {@link #enable(VaadinSession, int)} to start recording.
+ *
+ * @author Vaadin Ltd
+ */
+public class NotificationHistory implements Serializable {
+
+    private static final int SPILL_BATCH_SIZE = 256;
+    private static final int SPILL_QUEUE_CAPACITY = 64;
+    private static final Position[] POSITIONS = Position.values();
+    private static final NotificationVariant[] VARIANTS = NotificationVariant
+            .values();
+
+    // Shared by all sessions, batches are written in the order they are spilled
+    private static ExecutorService spillWriter;
+
+    private final long[] timestamps;
+    private final String[] texts;
+    private final int[] variants;
+    private final byte[] positions;
+
+    private int head;
+    private int size;
+    private long nextSequence;
+
+    private File spillFile;
+    private final List<Entry> spillBuffer = new ArrayList<>();
+
+    private NotificationHistoryIndex index;
+
+    /**
+     * A record of a notification that has been opened.
+     */
+    public static class Entry implements Serializable {
+        private final long sequence;
+        private final long timestamp;
+        private final String text;
+        private final int variants;
+        private final Position position;
+
+        private Entry(long sequence, long timestamp, String text,
+                int variants, Position position) {
+            this.sequence = sequence;
+            this.timestamp = timestamp;
+            this.text = text;
+            this.variants = variants;
+            this.position = position;
+        }
+
+        /**
+         * Gets the sequence number of the record, counting all notifications
+         * recorded in the session.
+         *
+         * @return the sequence number
+         */
+        public long getSequence() {
+            return sequence;
+        }
+
+        /**
+         * Gets the time when the notification was opened.
+         *
+         * @return the time of opening, not {@code null}
+         */
+        public Instant getTimestamp() {
+            return Instant.ofEpochMilli(timestamp);
+        }
+
+        /**
+         * Gets the text of the notification.
+         *
+         * @return the text of the notification, or {@code null} if the
+         *         notification had components instead of text
+         */
+        public String getText() {
+            return text;
+        }
+
+        /**
+         * Gets the theme variants the notification had.
+         *
+         * @return the theme variants, not {@code null}
+         */
+        public Set<NotificationVariant> getVariants() {
+            Set<NotificationVariant> set = EnumSet
+                    .noneOf(NotificationVariant.class);
+            for (NotificationVariant variant : VARIANTS) {
+                if ((variants & variantBit(variant)) != 0) {
+                    set.add(variant);
+                }
+            }
+            return set;
+        }
+
+        /**
+         * Gets the position the notification had.
+         *
+         * @return the position, not {@code null}
+         */
+        public Position getPosition() {
+            return position;
+        }
+    }
+
+    /**
+     * Criteria for the records returned by
+     * {@link NotificationHistory#getPage(int, int, Filter)}. Criteria are
+     * checked against the compact records without creating any objects.
+     */
+    public static class Filter implements Serializable {
+        private int variantMask;
+        private int positionMask;
+        private long since = Long.MIN_VALUE;
+        private long until = Long.MAX_VALUE;
+
+        /**
+         * Only matches records that had at least one of the given variants.
+         *
+         * @param variants
+         *            the variants to match
+         * @return this filter
+         */
+        public Filter withVariant(NotificationVariant... variants) {
+            for (NotificationVariant variant : variants) {
+                variantMask |= variantBit(variant);
+            }
+            return this;
+        }
+
+        /**
+         * Only matches records that had one of the given positions.
+         *
+         * @param positions
+         *            the positions to match
+         * @return this filter
+         */
+        public Filter withPosition(Position... positions) {
+            for (Position position : positions) {
+                positionMask |= 1 << position.ordinal();
+            }
+            return this;
+        }
+
+        /**
+         * Only matches records of notifications opened at or after the given
+         * time.
+         *
+         * @param since
+         *            the earliest time, not {@code null}
+         * @return this filter
+         */
+        public Filter since(Instant since) {
+            this.since = since.toEpochMilli();
+            return this;
+        }
+
+        /**
+         * Only matches records of notifications opened before the given
+         * time.
+         *
+         * @param until
+         *            the time to match records before, not {@code null}
+         * @return this filter
+         */
+        public Filter until(Instant until) {
+            this.until = until.toEpochMilli();
+            return this;
+        }
+
+        private boolean matches(long timestamp, int variants, int position) {
+            return timestamp >= since && timestamp < until
+                    && (variantMask == 0 || (variants & variantMask) != 0)
+                    && (positionMask == 0
+                            || (positionMask & (1 << position)) != 0);
+        }
+    }
+
+    /**
+     * Criteria for {@link NotificationHistory#search(Query, int)}. All given
+     * criteria must match.
+     */
+    public static class Query implements Serializable {
+        private String text;
+        private int variantMask;
+        private long since = Long.MIN_VALUE;
+        private long until = Long.MAX_VALUE;
+
+        /**
+         * Only matches records whose text contains all the words of the given
+         * text. Words are sequences of letters and digits, and are matched
+         * case insensitively.
+         *
+         * @param text
+         *            the words to match
+         * @return this query
+         */
+        public Query withText(String text) {
+            this.text = text;
+            return this;
+        }
+
+        /**
+         * Only matches records that had at least one of the given variants.
+         *
+         * @param variants
+         *            the variants to match
+         * @return this query
+         */
+        public Query withVariant(NotificationVariant... variants) {
+            for (NotificationVariant variant : variants) {
+                variantMask |= variantBit(variant);
+            }
+            return this;
+        }
+
+        /**
+         * Only matches records of notifications opened at or after the given
+         * time.
+         *
+         * @param since
+         *            the earliest time, not {@code null}
+         * @return this query
+         */
+        public Query since(Instant since) {
+            this.since = since.toEpochMilli();
+            return this;
+        }
+
+        /**
+         * Only matches records of notifications opened before the given
+         * time.
+         *
+         * @param until
+         *            the time to match records before, not {@code null}
+         * @return this query
+         */
+        public Query until(Instant until) {
+            this.until = until.toEpochMilli();
+            return this;
+        }
+    }
+
+    private NotificationHistory(int capacity) {
+        timestamps = new long[capacity];
+        texts = new String[capacity];
+        variants = new int[capacity];
+        positions = new byte[capacity];
+    }
+
+    /**
+     * Starts recording the notifications opened in the given session. If
+     * there already is a history for the session, it is replaced.
+     * <p>
+     * This method must be called while holding the session lock.
+     *
+     * @param session
+     *            the session to record notifications for, not {@code null}
+     * @param capacity
+     *            the maximum number of records kept in memory
+     * @return the history of the session
+     */
+    public static NotificationHistory enable(VaadinSession session,
+            int capacity) {
+        Objects.requireNonNull(session, "Session should not be null");
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        NotificationHistory history = new NotificationHistory(capacity);
+        session.setAttribute(NotificationHistory.class, history);
+        return history;
+    }
+
+    /**
+     * Stops recording the notifications opened in the given session, and
+     * discards the records kept in memory.
+     * <p>
+     * This method must be called while holding the session lock.
+     *
+     * @param session
+     *            the session to stop recording notifications for, not
+     *            {@code null}
+     */
+    public static void disable(VaadinSession session) {
+        Objects.requireNonNull(session, "Session should not be null");
+        get(session).ifPresent(NotificationHistory::spill);
+        session.setAttribute(NotificationHistory.class, null);
+    }
+
+    /**
+     * Gets the history of the given session.
+     * <p>
+     * This method must be called while holding the session lock.
+     *
+     * @param session
+     *            the session to get the history for, not {@code null}
+     * @return the history, or an empty optional if recording is not enabled
+     *         for the session
+     */
+    public static Optional<NotificationHistory> get(VaadinSession session) {
+        Objects.requireNonNull(session, "Session should not be null");
+        return Optional
+                .ofNullable(session.getAttribute(NotificationHistory.class));
+    }
+
+    /**
+     * Records a notification being opened in the given UI, if the session of
+     * the UI has a history.
+     *
+     * @param ui
+     *            the UI the notification is opened in
+     * @param notification
+     *            the notification that is opened
+     */
+    static void record(UI ui, Notification notification) {
+        VaadinSession session = ui.getSession();
+        if (session != null) {
+            NotificationHistory history = session
+                    .getAttribute(NotificationHistory.class);
+            if (history != null) {
+                history.add(notification);
+            }
+        }
+    }
+
+    /**
+     * Sets a file where records evicted from memory are appended, in batches
+     * of {@value #SPILL_BATCH_SIZE}. The file can be read back with
+     * {@link #readSpillFile(File)}.
+     * <p>
+     * The batches are written by a background thread, so opening a
+     * notification never waits for the file. Records that cannot be written,
+     * for example because the disk is full, are logged and dropped.
+     *
+     * @param spillFile
+     *            the file to append evicted records to, or {@code null} to
+     *            discard evicted records
+     */
+    public synchronized void setSpillFile(File spillFile) {
+        spill();
+        this.spillFile = spillFile;
+    }
+
+    /**
+     * Gets the file where records evicted from memory are appended.
+     *
+     * @return the spill file, or {@code null} if evicted records are
+     *         discarded
+     */
+    public synchronized File getSpillFile() {
+        return spillFile;
+    }
+
+    /**
+     * Gets the maximum number of records kept in memory.
+     *
+     * @return the capacity of the history
+     */
+    public int getCapacity() {
+        return timestamps.length;
+    }
+
+    /**
+     * Gets the number of records kept in memory.
+     *
+     * @return the number of records
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Gets the number of notifications recorded since the history was
+     * enabled, including records that have been evicted from memory.
+     *
+     * @return the total number of recorded notifications
+     */
+    public synchronized long getTotalCount() {
+        return nextSequence;
+    }
+
+    /**
+     * Gets a page of the records kept in memory, newest first.
+     *
+     * @param offset
+     *            the number of newest records to skip
+     * @param limit
+     *            the maximum number of records to return
+     * @return the records, not {@code null}
+     */
+    public synchronized List<Entry> getPage(int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException(
+                    "Offset and limit cannot be negative");
+        }
+        int count = Math.max(0, Math.min(limit, size - offset));
+        List<Entry> page = new ArrayList<>(count);
+        for (int i = offset; i < offset + count; i++) {
+            page.add(entry(index(i), sequenceAt(i)));
+        }
+        return page;
+    }
+
+    /**
+     * Gets a page of the records kept in memory that match the given filter,
+     * newest first.
+     *
+     * @param offset
+     *            the number of newest matching records to skip
+     * @param limit
+     *            the maximum number of records to return
+     * @param filter
+     *            the filter records must match, not {@code null}
+     * @return the matching records, not {@code null}
+     */
+    public synchronized List<Entry> getPage(int offset, int limit,
+            Filter filter) {
+        Objects.requireNonNull(filter, "Filter should not be null");
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException(
+                    "Offset and limit cannot be negative");
+        }
+        List<Entry> page = new ArrayList<>();
+        int skipped = 0;
+        for (int i = 0; i < size && page.size() < limit; i++) {
+            int index = index(i);
+            if (filter.matches(timestamps[index], variants[index],
+                    positions[index])) {
+                if (skipped < offset) {
+                    skipped++;
+                } else {
+                    page.add(entry(index, sequenceAt(i)));
+                }
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Sets whether the history keeps an index for
+     * {@link #search(Query, int)}. The index is built from the records in
+     * memory when enabled, and is then updated as each notification is
+     * recorded.
+     *
+     * @param searchable
+     *            {@code true} to keep an index, {@code false} to drop it
+     */
+    public synchronized void setSearchable(boolean searchable) {
+        if (!searchable) {
+            index = null;
+        } else if (index == null) {
+            index = new NotificationHistoryIndex(getCapacity());
+            long oldest = nextSequence - size;
+            for (int age = size - 1; age >= 0; age--) {
+                int bufferIndex = index(age);
+                index.add(sequenceAt(age), texts[bufferIndex],
+                        variants[bufferIndex], oldest);
+            }
+        }
+    }
+
+    /**
+     * Gets whether the history keeps an index for
+     * {@link #search(Query, int)}.
+     *
+     * @return {@code true} if the history is searchable, {@code false}
+     *         otherwise
+     */
+    public synchronized boolean isSearchable() {
+        return index != null;
+    }
+
+    /**
+     * Finds the records in memory that match the given query, newest first.
+     * <p>
+     * Words and variants are looked up in the index, and the time range is
+     * found with a binary search over the records, so the cost of a query
+     * depends on the number of candidate records rather than the size of the
+     * history.
+     *
+     * @param query
+     *            the query to match, not {@code null}
+     * @param limit
+     *            the maximum number of records to return
+     * @return the matching records, not {@code null}
+     * @throws IllegalStateException
+     *             if the history is not searchable
+     * @see #setSearchable(boolean)
+     */
+    public synchronized List<Entry> search(Query query, int limit) {
+        Objects.requireNonNull(query, "Query should not be null");
+        if (index == null) {
+            throw new IllegalStateException(
+                    "The history is not searchable, call setSearchable(true) first");
+        }
+        List<Entry> result = new ArrayList<>();
+        long oldest = nextSequence - size;
+        long first = Math.max(oldest, firstSequenceAtOrAfter(query.since));
+        long last = firstSequenceAtOrAfter(query.until) - 1;
+        if (first > last || limit <= 0) {
+            return result;
+        }
+
+        List<NotificationHistoryIndex.Postings> postings = Collections
+                .emptyList();
+        Set<String> words = NotificationHistoryIndex.tokenize(query.text);
+        if (!words.isEmpty()) {
+            postings = index.getWordPostings(words, oldest);
+        } else if (Integer.bitCount(query.variantMask) == 1) {
+            NotificationHistoryIndex.Postings variantPostings = index
+                    .getVariantPostings(VARIANTS[Integer.numberOfTrailingZeros(
+                            query.variantMask)], oldest);
+            postings = variantPostings == null ? null
+                    : Collections.singletonList(variantPostings);
+        }
+        if (postings == null) {
+            return result;
+        }
+
+        if (postings.isEmpty()) {
+            for (long sequence = last; sequence >= first
+                    && result.size() < limit; sequence--) {
+                addIfMatches(result, sequence, query, postings);
+            }
+        } else {
+            NotificationHistoryIndex.Postings driver = postings.get(0);
+            for (int position = driver.floor(last); position >= driver
+                    .getStart() && result.size() < limit; position--) {
+                long sequence = driver.get(position);
+                if (sequence < first) {
+                    break;
+                }
+                addIfMatches(result, sequence, query, postings);
+            }
+        }
+        return result;
+    }
+
+    private void addIfMatches(List<Entry> result, long sequence, Query query,
+            List<NotificationHistoryIndex.Postings> postings) {
+        int bufferIndex = index(sequenceToAge(sequence));
+        if (query.variantMask != 0
+                && (variants[bufferIndex] & query.variantMask) == 0) {
+            return;
+        }
+        for (int i = 1; i < postings.size(); i++) {
+            if (!postings.get(i).contains(sequence)) {
+                return;
+            }
+        }
+        result.add(entry(bufferIndex, sequence));
+    }
+
+    /**
+     * Gets the sequence number of the oldest record in memory opened at or
+     * after the given time, or the next sequence number if there is none.
+     */
+    private long firstSequenceAtOrAfter(long time) {
+        long low = nextSequence - size;
+        long high = nextSequence;
+        while (low < high) {
+            long middle = (low + high) >>> 1;
+            if (timestamps[index(sequenceToAge(middle))] < time) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Writes records evicted from memory that are not yet in the spill file to
+     * it, and waits until all records spilled so far have been written.
+     * Records that cannot be written are logged and dropped.
+     */
+    public void flush() {
+        Future<?> written;
+        synchronized (this) {
+            written = spill();
+        }
+        if (written == null) {
+            return;
+        }
+        try {
+            written.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | CancellationException e) {
+            // Already logged by the writer or when the batch was rejected
+        }
+    }
+
+    /**
+     * Hands the buffered records over to the writer thread without waiting
+     * for them to be written.
+     *
+     * @return a future that completes once the records, and all records
+     *         spilled before them, have been written, or {@code null} if
+     *         there is no spill file
+     */
+    private synchronized Future<?> spill() {
+        if (spillFile == null) {
+            spillBuffer.clear();
+            return null;
+        }
+        File file = spillFile;
+        List<Entry> batch = new ArrayList<>(spillBuffer);
+        spillBuffer.clear();
+        return getSpillWriter().submit(() -> write(file, batch));
+    }
+
+    private static synchronized ExecutorService getSpillWriter() {
+        if (spillWriter == null) {
+            spillWriter = new ThreadPoolExecutor(1, 1, 0,
+                    TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(SPILL_QUEUE_CAPACITY),
+                    runnable -> {
+                        Thread thread = new Thread(runnable,
+                                "vaadin-notification-history-writer");
+                        thread.setDaemon(true);
+                        return thread;
+                    }, (task, executor) -> {
+                        // Also releases a flush() waiting for the batch
+                        ((Future<?>) task).cancel(false);
+                        LoggerFactory.getLogger(NotificationHistory.class)
+                                .warn("Notification history writes are falling behind, evicted records are dropped");
+                    });
+        }
+        return spillWriter;
+    }
+
+    private static void write(File file, List<Entry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file, true)))) {
+            for (Entry entry : entries) {
+                out.writeLong(entry.sequence);
+                out.writeLong(entry.timestamp);
+                out.writeInt(entry.variants);
+                out.writeByte(entry.position.ordinal());
+                if (entry.text == null) {
+                    out.writeInt(-1);
+                } else {
+                    byte[] text = entry.text.getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(text.length);
+                    out.write(text);
+                }
+            }
+        } catch (IOException e) {
+            LoggerFactory.getLogger(NotificationHistory.class).error(
+                    "Unable to write notification history to " + file + ", "
+                            + entries.size() + " records are dropped",
+                    e);
+        }
+    }
+
+    /**
+     * Reads the records written to a spill file, oldest first.
+     *
+     * @param spillFile
+     *            the spill file to read, not {@code null}
+     * @return the records in the file, not {@code null}
+     * @throws IOException
+     *             if the file cannot be read
+     */
+    public static List<Entry> readSpillFile(File spillFile)
+            throws IOException {
+        if (!spillFile.exists()) {
+            return Collections.emptyList();
+        }
+        List<Entry> entries = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(spillFile)))) {
+            while (true) {
+                long sequence;
+                try {
+                    sequence = in.readLong();
+                } catch (EOFException e) {
+                    return entries;
+                }
+                long timestamp = in.readLong();
+                int variantBits = in.readInt();
+                Position position = POSITIONS[in.readByte()];
+                int length = in.readInt();
+                String text = null;
+                if (length >= 0) {
+                    byte[] bytes = new byte[length];
+                    in.readFully(bytes);
+                    text = new String(bytes, StandardCharsets.UTF_8);
+                }
+                entries.add(new Entry(sequence, timestamp, text, variantBits,
+                        position));
+            }
+        }
+    }
+
+    synchronized long add(Notification notification) {
+        int capacity = timestamps.length;
+        long now = System.currentTimeMillis();
+        if (size > 0) {
+            // Keep timestamps ordered even if the clock is adjusted
+            now = Math.max(now, timestamps[index(0)]);
+        }
+        if (size == capacity) {
+            if (spillFile != null) {
+                spillBuffer.add(entry(head, nextSequence - capacity));
+                if (spillBuffer.size() >= SPILL_BATCH_SIZE) {
+                    spill();
+                }
+            }
+        } else {
+            size++;
+        }
+
+        int bits = 0;
+        for (NotificationVariant variant : VARIANTS) {
+            if (notification.getThemeNames()
+                    .contains(variant.getVariantName())) {
+                bits |= variantBit(variant);
+            }
+        }
+        timestamps[head] = now;
+        texts[head] = notification.getTextContent();
+        variants[head] = bits;
+        positions[head] = (byte) notification.getPosition().ordinal();
+        head = (head + 1) % capacity;
+        long sequence = nextSequence++;
+        if (index != null) {
+            index.add(sequence, texts[index(0)], bits, nextSequence - size);
+        }
+        return sequence;
+    }
+
+    /**
+     * Gets the index in the buffer of the record at the given age, where
+     * {@code 0} is the newest record.
+     */
+    private int index(int age) {
+        int index = head - 1 - age;
+        return index < 0 ? index + timestamps.length : index;
+    }
+
+    private long sequenceAt(int age) {
+        return nextSequence - 1 - age;
+    }
+
+    private int sequenceToAge(long sequence) {
+        return (int) (nextSequence - 1 - sequence);
+    }
+
+    private Entry entry(int index, long sequence) {
+        return new Entry(sequence, timestamps[index], texts[index],
+                variants[index], POSITIONS[positions[index]]);
+    }
+
+    private static int variantBit(NotificationVariant variant) {
+        return 1 << variant.ordinal();
+    }
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright 2000-2019 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.notification;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Inverted index from words and theme variants to the sequence numbers of the
+ * {@link NotificationHistory} records containing them.
+ * <p>
+ * Postings are appended in sequence order, so each list is sorted and can be
+ * searched with a binary search. Postings of records evicted from the history
+ * are trimmed from the lists when they are appended to, and all lists are
+ * swept once per capacity worth of additions, so the index never holds more
+ * than about twice the postings of the records in the history.
+ *
+ * @author Vaadin Ltd
+ */
+class NotificationHistoryIndex implements Serializable {
+
+    private static final NotificationVariant[] VARIANTS = NotificationVariant
+            .values();
+
+    private final Map<String, Postings> words = new HashMap<>();
+    private final Postings[] variants = new Postings[VARIANTS.length];
+    private final int capacity;
+    private int addedSinceSweep;
+
+    /**
+     * Sorted list of sequence numbers, with evicted ones trimmed from the
+     * start.
+     */
+    static class Postings implements Serializable {
+        private long[] sequences = new long[4];
+        private int start;
+        private int end;
+
+        void add(long sequence, long oldest) {
+            trim(oldest);
+            if (end == sequences.length) {
+                if (start > 0) {
+                    System.arraycopy(sequences, start, sequences, 0,
+                            end - start);
+                    end -= start;
+                    start = 0;
+                }
+                if (end == sequences.length) {
+                    sequences = Arrays.copyOf(sequences, end * 2);
+                }
+            }
+            sequences[end++] = sequence;
+        }
+
+        void trim(long oldest) {
+            while (start < end && sequences[start] < oldest) {
+                start++;
+            }
+        }
+
+        void compact() {
+            int size = end - start;
+            if (size < sequences.length / 4) {
+                sequences = Arrays.copyOfRange(sequences, start,
+                        start + Math.max(4, size * 2));
+                start = 0;
+                end = size;
+            }
+        }
+
+        boolean isEmpty() {
+            return start == end;
+        }
+
+        int size() {
+            return end - start;
+        }
+
+        boolean contains(long sequence) {
+            return Arrays.binarySearch(sequences, start, end, sequence) >= 0;
+        }
+
+        /**
+         * Gets the position of the last sequence number that is at most the
+         * given one, or {@code start - 1} if there is none.
+         */
+        int floor(long sequence) {
+            int position = Arrays.binarySearch(sequences, start, end,
+                    sequence);
+            return position >= 0 ? position : -position - 2;
+        }
+
+        long get(int position) {
+            return sequences[position];
+        }
+
+        int getStart() {
+            return start;
+        }
+    }
+
+    NotificationHistoryIndex(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Adds a record to the index.
+     *
+     * @param sequence
+     *            the sequence number of the record
+     * @param text
+     *            the text of the record, or {@code null}
+     * @param variantBits
+     *            the variant bitmask of the record
+     * @param oldest
+     *            the sequence number of the oldest record still in the
+     *            history
+     */
+    void add(long sequence, String text, int variantBits, long oldest) {
+        for (String word : tokenize(text)) {
+            words.computeIfAbsent(word, key -> new Postings()).add(sequence,
+                    oldest);
+        }
+        for (int i = 0; i < VARIANTS.length; i++) {
+            if ((variantBits & (1 << i)) != 0) {
+                if (variants[i] == null) {
+                    variants[i] = new Postings();
+                }
+                variants[i].add(sequence, oldest);
+            }
+        }
+        if (++addedSinceSweep >= capacity) {
+            sweep(oldest);
+        }
+    }
+
+    /**
+     * Gets the postings of the records containing all the given words, in
+     * order from the shortest list to the longest.
+     *
+     * @param queryWords
+     *            the words to look up
+     * @param oldest
+     *            the sequence number of the oldest record still in the
+     *            history
+     * @return the postings for each word, or {@code null} if some word is not
+     *         in any record
+     */
+    List<Postings> getWordPostings(Set<String> queryWords, long oldest) {
+        List<Postings> result = new ArrayList<>(queryWords.size());
+        for (String word : queryWords) {
+            Postings postings = words.get(word);
+            if (postings == null) {
+                return null;
+            }
+            postings.trim(oldest);
+            if (postings.isEmpty()) {
+                return null;
+            }
+            result.add(postings);
+        }
+        result.sort((a, b) -> Integer.compare(a.size(), b.size()));
+        return result;
+    }
+
+    /**
+     * Gets the postings of the records with the given variant.
+     *
+     * @param variant
+     *            the variant to look up
+     * @param oldest
+     *            the sequence number of the oldest record still in the
+     *            history
+     * @return the postings, or {@code null} if no record has the variant
+     */
+    Postings getVariantPostings(NotificationVariant variant, long oldest) {
+        Postings postings = variants[variant.ordinal()];
+        if (postings != null) {
+            postings.trim(oldest);
+        }
+        return postings;
+    }
+
+    /**
+     * Splits text into lower case words of letters and digits.
+     *
+     * @param text
+     *            the text to split, or {@code null}
+     * @return the distinct words of the text, not {@code null}
+     */
+    static Set<String> tokenize(String text) {
+        Set<String> result = new LinkedHashSet<>();
+        if (text == null) {
+            return result;
+        }
+        int wordStart = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length()
+                    && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && wordStart < 0) {
+                wordStart = i;
+            } else if (!wordChar && wordStart >= 0) {
+                result.add(text.substring(wordStart, i)
+                        .toLowerCase(Locale.ROOT));
+                wordStart = -1;
+            }
+        }
+        return result;
+    }
+
+    private void sweep(long oldest) {
+        addedSinceSweep = 0;
+        Iterator<Postings> iterator = words.values().iterator();
+        while (iterator.hasNext()) {
+            Postings postings = iterator.next();
+            postings.trim(oldest);
+            if (postings.isEmpty()) {
+                iterator.remove();
+            } else {
+                postings.compact();
+            }
+        }
+        for (Postings postings : variants) {
+            if (postings != null) {
+                postings.trim(oldest);
+                postings.compact();
+            }
+        }
+    }
+}
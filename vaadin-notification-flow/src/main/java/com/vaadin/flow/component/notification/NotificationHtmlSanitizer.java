@@ -0,0 +1,196 @@
+/*
+ * Copyright 2000-2019 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.notification;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.safety.Whitelist;
+
+/**
+ * Sanitizes the HTML shown with {@link Notification#setHtml(String)}.
+ * <p>
+ * The sanitizer is shared by all notifications of the JVM. Elements and
+ * attributes that are not in the allow-list are removed, by default the ones
+ * of {@link Whitelist#basic()}: simple text formatting, lists and links to
+ * http, https, ftp and mailto URLs. Sanitized markup is kept in a bounded
+ * cache, so a message shown repeatedly, for example to many users, is only
+ * parsed once.
+ *
+ * @author Vaadin Ltd
+ */
+public class NotificationHtmlSanitizer {
+
+    private static final NotificationHtmlSanitizer INSTANCE = new NotificationHtmlSanitizer();
+
+    /**
+     * Longer content is not cached, as notifications are expected to be short.
+     */
+    private static final int MAX_CACHED_LENGTH = 4096;
+
+    private static final Document.OutputSettings OUTPUT_SETTINGS = new Document.OutputSettings()
+            .prettyPrint(false);
+
+    private volatile Whitelist whitelist = Whitelist.basic();
+    private volatile int cacheSize = 1000;
+
+    // Least recently used first, guarded by itself
+    private final Map<String, Sanitized> cache = new LinkedHashMap<String, Sanitized>(
+            16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(
+                Map.Entry<String, Sanitized> eldest) {
+            return size() > cacheSize;
+        }
+    };
+
+    /**
+     * Sanitized markup with its text content.
+     */
+    static final class Sanitized {
+        private final String html;
+        private final String text;
+
+        private Sanitized(String html, String text) {
+            this.html = html;
+            this.text = text;
+        }
+
+        String getHtml() {
+            return html;
+        }
+
+        String getText() {
+            return text;
+        }
+    }
+
+    private NotificationHtmlSanitizer() {
+    }
+
+    /**
+     * Gets the sanitizer shared by all notifications.
+     *
+     * @return the sanitizer, not {@code null}
+     */
+    public static NotificationHtmlSanitizer getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Sets the allow-list of elements and attributes kept in notification
+     * HTML. Clears the cache.
+     *
+     * @param whitelist
+     *            the allow-list, not {@code null}
+     */
+    public void setWhitelist(Whitelist whitelist) {
+        this.whitelist = Objects.requireNonNull(whitelist,
+                "Whitelist should not be null");
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * Gets the allow-list of elements and attributes kept in notification
+     * HTML.
+     *
+     * @return the allow-list, not {@code null}
+     */
+    public Whitelist getWhitelist() {
+        return whitelist;
+    }
+
+    /**
+     * Sets the maximum number of distinct contents whose sanitized markup is
+     * cached. The least recently used entries are evicted first.
+     *
+     * @param cacheSize
+     *            the maximum number of cached entries, or {@code 0} to not
+     *            cache
+     */
+    public void setCacheSize(int cacheSize) {
+        if (cacheSize < 0) {
+            throw new IllegalArgumentException(
+                    "Cache size cannot be negative");
+        }
+        this.cacheSize = cacheSize;
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * Gets the maximum number of distinct contents whose sanitized markup is
+     * cached.
+     *
+     * @return the maximum number of cached entries
+     */
+    public int getCacheSize() {
+        return cacheSize;
+    }
+
+    /**
+     * Removes the elements and attributes that are not allowed from the given
+     * HTML.
+     *
+     * @param html
+     *            the HTML to sanitize, {@code null} is handled as an empty
+     *            string
+     * @return the sanitized HTML, not {@code null}
+     */
+    public String sanitize(String html) {
+        return sanitizeWithText(html).getHtml();
+    }
+
+    Sanitized sanitizeWithText(String html) {
+        String content = html == null ? "" : html;
+        boolean cacheable = cacheSize > 0
+                && content.length() <= MAX_CACHED_LENGTH;
+        if (cacheable) {
+            synchronized (cache) {
+                Sanitized cached = cache.get(content);
+                if (cached != null) {
+                    return cached;
+                }
+            }
+        }
+        // Parsed outside the lock, two threads may sanitize the same content
+        Whitelist used = whitelist;
+        String clean = Jsoup.clean(content, "", used, OUTPUT_SETTINGS);
+        Sanitized sanitized = new Sanitized(clean,
+                Jsoup.parseBodyFragment(clean).text());
+        if (cacheable) {
+            synchronized (cache) {
+                // Not cached if the allow-list was changed meanwhile
+                if (used == whitelist) {
+                    cache.put(content, sanitized);
+                }
+            }
+        }
+        return sanitized;
+    }
+
+    int getCachedCount() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+}
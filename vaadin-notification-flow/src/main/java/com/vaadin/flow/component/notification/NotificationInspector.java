@@ -0,0 +1,366 @@
+/*
+ * Copyright 2000-2019 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.notification;
+
+import java.io.Serializable;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.LoggerFactory;
+
+import com.vaadin.flow.server.VaadinService;
+
+/**
+ * Service-wide view of the open notifications of all UIs, for operations and
+ * monitoring.
+ * <p>
+ * Each UI publishes the number of its open notifications together with the
+ * time its oldest open notification was opened, as one immutable snapshot that
+ * is only replaced by threads holding the session lock. The inspector reads
+ * these snapshots without locking any session, so the two values reported for
+ * a UI always belong to the same update. The total and the values of
+ * different UIs are read separately and may be from slightly different
+ * moments. The detail views can be
+ * limited to a random sample of the UIs with {@link #setSampleSize(int)}.
+ * <p>
+ * The inspector of a service is available through {@link #get(VaadinService)}
+ * and can be exposed through JMX with {@link #registerMBean()}.
+ *
+ * @author Vaadin Ltd
+ */
+public class NotificationInspector implements NotificationInspectorMBean {
+
+    private static final int SUMMARY_LIMIT = 10;
+
+    private static final Map<VaadinService, NotificationInspector> INSPECTORS = new WeakHashMap<>();
+
+    private final String serviceName;
+    private final Set<UiCounters> counters = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger totalOpen = new AtomicInteger();
+    private volatile int sampleSize;
+    private ObjectName objectName;
+
+    /**
+     * Open notification counters of one UI.
+     */
+    static class UiCounters {
+        private final NotificationInspector inspector;
+        private final String sessionId;
+        private final int uiId;
+        // Replaced as a whole so that readers see both values of one update
+        private volatile UiStatistics statistics;
+        private volatile boolean registered = true;
+
+        private UiCounters(NotificationInspector inspector, String sessionId,
+                int uiId) {
+            this.inspector = inspector;
+            this.sessionId = sessionId;
+            this.uiId = uiId;
+            statistics = new UiStatistics(sessionId, uiId, 0, null);
+        }
+
+        /**
+         * Publishes the current state of the UI. Only called while holding
+         * the session lock of the UI.
+         *
+         * @param openCount
+         *            the number of open notifications
+         * @param oldest
+         *            the time in milliseconds the oldest open notification was
+         *            opened, or {@link Long#MAX_VALUE} if none is open
+         */
+        void update(int openCount, long oldest) {
+            if (!registered) {
+                return;
+            }
+            inspector.totalOpen
+                    .addAndGet(openCount - statistics.getOpenCount());
+            statistics = new UiStatistics(sessionId, uiId, openCount,
+                    oldest == Long.MAX_VALUE ? null
+                            : Instant.ofEpochMilli(oldest));
+        }
+
+        /**
+         * Stops tracking the UI, for example when it is detached.
+         */
+        void unregister() {
+            if (inspector.counters.remove(this)) {
+                update(0, Long.MAX_VALUE);
+                registered = false;
+            }
+        }
+
+        private UiStatistics snapshot() {
+            return statistics;
+        }
+    }
+
+    /**
+     * Snapshot of the open notifications of one UI.
+     */
+    public static class UiStatistics implements Serializable {
+        private final String sessionId;
+        private final int uiId;
+        private final int openCount;
+        private final Instant oldestOpenedAt;
+
+        private UiStatistics(String sessionId, int uiId, int openCount,
+                Instant oldestOpenedAt) {
+            this.sessionId = sessionId;
+            this.uiId = uiId;
+            this.openCount = openCount;
+            this.oldestOpenedAt = oldestOpenedAt;
+        }
+
+        /**
+         * Gets the id of the session of the UI.
+         *
+         * @return the session id
+         */
+        public String getSessionId() {
+            return sessionId;
+        }
+
+        /**
+         * Gets the id of the UI within its session.
+         *
+         * @return the UI id
+         */
+        public int getUiId() {
+            return uiId;
+        }
+
+        /**
+         * Gets the number of open notifications of the UI.
+         *
+         * @return the number of open notifications
+         */
+        public int getOpenCount() {
+            return openCount;
+        }
+
+        /**
+         * Gets the time the oldest open notification of the UI was opened.
+         *
+         * @return the time, or {@code null} if no notification is open
+         */
+        public Instant getOldestOpenedAt() {
+            return oldestOpenedAt;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder().append(sessionId)
+                    .append('/').append(uiId).append(": ").append(openCount)
+                    .append(" open");
+            if (oldestOpenedAt != null) {
+                builder.append(", oldest for ").append(Duration
+                        .between(oldestOpenedAt, Instant.now()).getSeconds())
+                        .append(" s");
+            }
+            return builder.toString();
+        }
+    }
+
+    NotificationInspector(String serviceName) {
+        this.serviceName = serviceName;
+    }
+
+    /**
+     * Gets the inspector of the given service, creating it if needed.
+     *
+     * @param service
+     *            the service to get the inspector for, not {@code null}
+     * @return the inspector of the service
+     */
+    public static synchronized NotificationInspector get(
+            VaadinService service) {
+        NotificationInspector inspector = INSPECTORS.get(service);
+        if (inspector == null) {
+            NotificationInspector created = new NotificationInspector(
+                    service.getServiceName());
+            service.addServiceDestroyListener(event -> {
+                synchronized (NotificationInspector.class) {
+                    INSPECTORS.remove(service);
+                }
+                created.unregisterMBean();
+            });
+            INSPECTORS.put(service, created);
+            inspector = created;
+        }
+        return inspector;
+    }
+
+    /**
+     * Starts tracking a UI.
+     *
+     * @param sessionId
+     *            the id of the session of the UI
+     * @param uiId
+     *            the id of the UI
+     * @return the counters to publish the state of the UI to
+     */
+    UiCounters register(String sessionId, int uiId) {
+        UiCounters uiCounters = new UiCounters(this, sessionId, uiId);
+        counters.add(uiCounters);
+        return uiCounters;
+    }
+
+    @Override
+    public int getTotalOpenCount() {
+        return totalOpen.get();
+    }
+
+    @Override
+    public int getUiCount() {
+        return counters.size();
+    }
+
+    @Override
+    public int getSampleSize() {
+        return sampleSize;
+    }
+
+    @Override
+    public void setSampleSize(int sampleSize) {
+        if (sampleSize < 0) {
+            throw new IllegalArgumentException(
+                    "Sample size cannot be negative");
+        }
+        this.sampleSize = sampleSize;
+    }
+
+    /**
+     * Gets the UIs with the most open notifications.
+     *
+     * @param limit
+     *            the maximum number of UIs to return
+     * @return the UIs in descending order of open notifications
+     */
+    public List<UiStatistics> getTopUis(int limit) {
+        return top(limit,
+                Comparator.comparingInt(UiStatistics::getOpenCount),
+                statistics -> statistics.getOpenCount() > 0);
+    }
+
+    /**
+     * Gets the UIs whose oldest open notification has been open the longest,
+     * which are the likely leaks.
+     *
+     * @param limit
+     *            the maximum number of UIs to return
+     * @return the UIs in descending order of open time
+     */
+    public List<UiStatistics> getLongestOpen(int limit) {
+        return top(limit,
+                Comparator.comparing(UiStatistics::getOldestOpenedAt)
+                        .reversed(),
+                statistics -> statistics.getOldestOpenedAt() != null);
+    }
+
+    @Override
+    public String[] getTopUiSummary() {
+        return getTopUis(SUMMARY_LIMIT).stream().map(UiStatistics::toString)
+                .toArray(String[]::new);
+    }
+
+    @Override
+    public String[] getLongestOpenSummary() {
+        return getLongestOpen(SUMMARY_LIMIT).stream()
+                .map(UiStatistics::toString).toArray(String[]::new);
+    }
+
+    /**
+     * Registers this inspector with the platform MBean server. The MBean is
+     * unregistered when the service is destroyed.
+     *
+     * @throws JMException
+     *             if the MBean could not be registered
+     */
+    public synchronized void registerMBean() throws JMException {
+        if (objectName != null) {
+            return;
+        }
+        ObjectName name = new ObjectName(
+                "com.vaadin.flow.component.notification:type=NotificationInspector,service="
+                        + ObjectName.quote(String.valueOf(serviceName)));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+        objectName = name;
+    }
+
+    private synchronized void unregisterMBean() {
+        if (objectName == null) {
+            return;
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.unregisterMBean(objectName);
+        } catch (JMException e) {
+            LoggerFactory.getLogger(NotificationInspector.class)
+                    .warn("Failed to unregister notification inspector", e);
+        }
+        objectName = null;
+    }
+
+    private List<UiStatistics> top(int limit,
+            Comparator<UiStatistics> comparator,
+            Predicate<UiStatistics> filter) {
+        if (limit <= 0) {
+            return Collections.emptyList();
+        }
+        int size = counters.size();
+        double probability = sampleSize > 0 && size > sampleSize
+                ? (double) sampleSize / size
+                : 1;
+        // Keeps the best entries with the worst of them at the head
+        PriorityQueue<UiStatistics> best = new PriorityQueue<>(limit + 1,
+                comparator);
+        for (UiCounters uiCounters : counters) {
+            if (probability < 1 && ThreadLocalRandom.current()
+                    .nextDouble() >= probability) {
+                continue;
+            }
+            UiStatistics statistics = uiCounters.snapshot();
+            if (!filter.test(statistics)) {
+                continue;
+            }
+            best.add(statistics);
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+        List<UiStatistics> result = new ArrayList<>(best);
+        result.sort(comparator.reversed());
+        return result;
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2000-2019 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.notification;
+
+/**
+ * Management interface of {@link NotificationInspector}, exposed through JMX
+ * by {@link NotificationInspector#registerMBean()}.
+ *
+ * @author Vaadin Ltd
+ */
+public interface NotificationInspectorMBean {
+
+    /**
+     * Gets the number of open notifications in all UIs of the service.
+     *
+     * @return the total number of open notifications
+     */
+    int getTotalOpenCount();
+
+    /**
+     * Gets the number of UIs of the service that have opened notifications.
+     *
+     * @return the number of tracked UIs
+     */
+    int getUiCount();
+
+    /**
+     * Gets a description of the UIs with the most open notifications.
+     *
+     * @return one line per UI, in descending order of open notifications
+     */
+    String[] getTopUiSummary();
+
+    /**
+     * Gets a description of the UIs whose oldest open notification has been
+     * open the longest.
+     *
+     * @return one line per UI, in descending order of open time
+     */
+    String[] getLongestOpenSummary();
+
+    /**
+     * Gets the number of UIs sampled for the detail views.
+     *
+     * @return the sample size, or {@code 0} if all UIs are examined
+     */
+    int getSampleSize();
+
+    /**
+     * Sets the number of UIs sampled for the detail views.
+     *
+     * @param sampleSize
+     *            the sample size, or {@code 0} to examine all UIs
+     */
+    void setSampleSize(int sampleSize);
+}
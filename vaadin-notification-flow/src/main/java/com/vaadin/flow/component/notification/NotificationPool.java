@@ -0,0 +1,119 @@
+/*
+ * Copyright 2000-2019 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.notification;
+
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import com.vaadin.flow.component.ComponentUtil;
+import com.vaadin.flow.component.UI;
+
+/**
+ * Per-UI pool of closed notifications created by
+ * {@link Notification#show(String, int, Notification.Position)}.
+ * <p>
+ * Pooled notifications stay attached to the UI while idle, so reusing one only
+ * sends the changed properties to the client instead of a new element subtree.
+ * The pool is stored as component data of the UI it belongs to.
+ *
+ * @author Vaadin Ltd
+ */
+class NotificationPool implements Serializable {
+
+    private final Deque<Notification> idle = new ArrayDeque<>();
+    private int capacity;
+
+    /**
+     * Gets the pool of the given UI.
+     *
+     * @param ui
+     *            the UI to get the pool for, not {@code null}
+     * @return the pool, or {@code null} if pooling is not enabled for the UI
+     */
+    static NotificationPool get(UI ui) {
+        return ComponentUtil.getData(ui, NotificationPool.class);
+    }
+
+    /**
+     * Sets the maximum number of idle notifications kept for the given UI.
+     * Idle notifications above the new capacity are removed from the UI.
+     *
+     * @param ui
+     *            the UI to configure, not {@code null}
+     * @param capacity
+     *            the capacity of the pool, {@code 0} disables pooling
+     */
+    static void setCapacity(UI ui, int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException(
+                    "Pool capacity cannot be negative");
+        }
+        NotificationPool pool = get(ui);
+        if (pool == null) {
+            if (capacity == 0) {
+                return;
+            }
+            pool = new NotificationPool();
+            ComponentUtil.setData(ui, NotificationPool.class, pool);
+        }
+        pool.capacity = capacity;
+        while (pool.idle.size() > capacity) {
+            pool.idle.pollFirst().discard();
+        }
+        if (capacity == 0) {
+            ComponentUtil.setData(ui, NotificationPool.class, null);
+        }
+    }
+
+    /**
+     * Takes an idle notification out of the pool.
+     *
+     * @return an idle notification still attached to the UI, or {@code null}
+     *         if there is none
+     */
+    Notification poll() {
+        Notification notification;
+        while ((notification = idle.pollLast()) != null) {
+            // The instance may have been reopened or detached by someone
+            // holding a reference to it
+            if (!notification.isOpened()
+                    && notification.getUI().isPresent()) {
+                return notification;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Puts a closed notification into the pool.
+     *
+     * @param notification
+     *            the closed notification
+     * @return {@code true} if the notification was pooled, {@code false} if
+     *         the pool is full and the caller should discard it
+     */
+    boolean offer(Notification notification) {
+        if (idle.contains(notification)) {
+            return true;
+        }
+        if (idle.size() >= capacity) {
+            return false;
+        }
+        idle.addLast(notification);
+        return true;
+    }
+}
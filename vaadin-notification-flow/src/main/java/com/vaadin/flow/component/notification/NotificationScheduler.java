@@ -0,0 +1,231 @@
+/*
+ * Copyright 2000-2019 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.notification;
+
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.LoggerFactory;
+
+import com.vaadin.flow.component.notification.TimingWheel.Timeout;
+import com.vaadin.flow.server.Command;
+import com.vaadin.flow.server.VaadinService;
+import com.vaadin.flow.shared.Registration;
+
+/**
+ * Runs delayed notification tasks for all UIs of a {@link VaadinService}.
+ * <p>
+ * There is one scheduler per service, backed by a single {@link TimingWheel}
+ * with a resolution of {@value #TICK_MILLIS} ms. Its ticker thread only runs
+ * while tasks are pending and stops once the wheel is empty, and for good
+ * when the service is destroyed. Expired tasks are handed to a pool of
+ * {@value #POOL_SIZE} daemon threads shared by all schedulers, so that a slow
+ * task does not delay the other timeouts. The tasks only queue work with
+ * {@link com.vaadin.flow.component.UI#access(Command)}, so the pool does not
+ * grow with the number of processors, and its idle threads exit on their
+ * own.
+ *
+ * @author Vaadin Ltd
+ */
+class NotificationScheduler {
+
+    static final long TICK_MILLIS = 100;
+
+    static final int POOL_SIZE = 2;
+
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS
+            .toNanos(TICK_MILLIS);
+
+    private static final long IDLE_THREAD_SECONDS = 60;
+
+    private static final ExecutorService EXECUTOR = createExecutor();
+
+    private static final Map<VaadinService, NotificationScheduler> SCHEDULERS = new WeakHashMap<>();
+
+    private static NotificationScheduler detachedScheduler;
+
+    private final TimingWheel wheel = new TimingWheel();
+    private final String name;
+    // Guarded by wheel
+    private Thread ticker;
+    private boolean shutdown;
+
+    private NotificationScheduler(String name) {
+        this.name = name;
+    }
+
+    private static ExecutorService createExecutor() {
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(POOL_SIZE,
+                POOL_SIZE, IDLE_THREAD_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable,
+                            "vaadin-notification-task-"
+                                    + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Gets the scheduler of the given service, creating it if needed.
+     *
+     * @param service
+     *            the service to get the scheduler for, or {@code null} to get a
+     *            scheduler that is not bound to any service
+     * @return the scheduler, not {@code null}
+     */
+    static synchronized NotificationScheduler get(VaadinService service) {
+        if (service == null) {
+            if (detachedScheduler == null) {
+                detachedScheduler = new NotificationScheduler(
+                        "vaadin-notification-scheduler");
+            }
+            return detachedScheduler;
+        }
+        NotificationScheduler scheduler = SCHEDULERS.get(service);
+        if (scheduler == null) {
+            NotificationScheduler created = new NotificationScheduler(
+                    "vaadin-notification-scheduler-"
+                            + service.getServiceName());
+            service.addServiceDestroyListener(event -> {
+                synchronized (NotificationScheduler.class) {
+                    SCHEDULERS.remove(service);
+                }
+                created.shutdown();
+            });
+            SCHEDULERS.put(service, created);
+            scheduler = created;
+        }
+        return scheduler;
+    }
+
+    /**
+     * Schedules a task to run after the given delay. The task is run outside
+     * of any session lock.
+     *
+     * @param delayMillis
+     *            the delay in milliseconds, rounded up to the resolution of the
+     *            scheduler
+     * @param task
+     *            the task to run, not {@code null}
+     * @return a handle for cancelling the task
+     */
+    Registration schedule(long delayMillis, Command task) {
+        long delayTicks = Math.max(1,
+                (delayMillis + TICK_MILLIS - 1) / TICK_MILLIS);
+        Timeout timeout;
+        synchronized (wheel) {
+            timeout = new Timeout(wheel.getCurrentTick() + delayTicks, task);
+            wheel.add(timeout);
+            if (ticker == null && !shutdown) {
+                ticker = new Thread(this::tick, name);
+                ticker.setDaemon(true);
+                ticker.start();
+            }
+        }
+        return () -> {
+            synchronized (wheel) {
+                wheel.remove(timeout);
+            }
+        };
+    }
+
+    /**
+     * Gets the number of tasks waiting for their delay to pass.
+     *
+     * @return the number of pending tasks
+     */
+    int getPendingCount() {
+        synchronized (wheel) {
+            return wheel.size();
+        }
+    }
+
+    /**
+     * Checks whether the ticker thread of this scheduler is running.
+     *
+     * @return {@code true} if the ticker thread is running
+     */
+    boolean isTicking() {
+        synchronized (wheel) {
+            return ticker != null;
+        }
+    }
+
+    private void tick() {
+        long start = System.nanoTime();
+        long ticks = 0;
+        boolean idle = false;
+        while (!idle) {
+            long sleepNanos = start + (ticks + 1) * TICK_NANOS
+                    - System.nanoTime();
+            if (sleepNanos > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleepNanos);
+                } catch (InterruptedException e) {
+                    // Interrupted by shutdown
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            ticks++;
+
+            List<Timeout> expired;
+            synchronized (wheel) {
+                if (shutdown) {
+                    return;
+                }
+                expired = wheel.advance();
+                if (wheel.size() == 0) {
+                    // The next schedule call starts a new ticker
+                    ticker = null;
+                    idle = true;
+                }
+            }
+            for (Timeout timeout : expired) {
+                EXECUTOR.execute(() -> run(timeout.getTask()));
+            }
+        }
+    }
+
+    private static void run(Command task) {
+        try {
+            task.execute();
+        } catch (RuntimeException e) {
+            LoggerFactory.getLogger(NotificationScheduler.class)
+                    .error("Scheduled notification task failed", e);
+        }
+    }
+
+    private void shutdown() {
+        synchronized (wheel) {
+            shutdown = true;
+            if (ticker != null) {
+                ticker.interrupt();
+                ticker = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,304 @@
+/*
+ * Copyright 2000-2019 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.notification;
+
+import java.io.Serializable;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.slf4j.LoggerFactory;
+
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.UIDetachedException;
+import com.vaadin.flow.function.SerializableFunction;
+import com.vaadin.flow.server.Command;
+import com.vaadin.flow.server.ErrorEvent;
+import com.vaadin.flow.server.VaadinSession;
+import com.vaadin.flow.shared.Registration;
+
+/**
+ * Subscriber that shows the items of a Reactive Streams {@link Publisher} as
+ * notifications in a UI.
+ * <p>
+ * Items are requested with backpressure: no more items are requested than
+ * there is room for visible notifications, and optionally no more than a
+ * given number per second. Items received from the publisher are buffered and
+ * shown in batches, one {@link UI#access(Command)} per batch. The
+ * subscription is cancelled when the UI is detached, or when the publisher
+ * sends more items than requested.
+ * <p>
+ * An error signalled by the publisher is passed to the
+ * {@link VaadinSession#getErrorHandler() error handler} of the session once
+ * the items received before it have been shown. The subscription does not
+ * survive serialization of the session: once deserialized, no more items are
+ * requested.
+ * <p>
+ * Publishers implementing {@code java.util.concurrent.Flow.Publisher} can be
+ * adapted with {@code org.reactivestreams.FlowAdapters.toPublisher}. The
+ * {@code org.reactivestreams:reactive-streams} dependency is optional and has
+ * to be added to the application for using this class.
+ *
+ * @param <T>
+ *            the type of items received from the publisher
+ * @author Vaadin Ltd
+ */
+public class NotificationSubscriber<T> implements Subscriber<T>, Serializable {
+
+    private static final int DEFAULT_MAX_VISIBLE = 3;
+
+    private final UI ui;
+    private final SerializableFunction<T, Notification> factory;
+    private final int maxVisible;
+    private final int maxPerSecond;
+
+    private transient volatile Subscription subscription;
+    private final Queue<T> buffer = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger buffered = new AtomicInteger();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    private volatile boolean done;
+
+    // Guarded by the session lock
+    private int visible;
+    private long outstanding;
+    private long rateWindowStart;
+    private int rateWindowCount;
+    private boolean retryScheduled;
+    private Registration detachRegistration;
+
+    private NotificationSubscriber(UI ui,
+            SerializableFunction<T, Notification> factory, int maxVisible,
+            int maxPerSecond) {
+        this.ui = ui;
+        this.factory = factory;
+        this.maxVisible = maxVisible;
+        this.maxPerSecond = maxPerSecond;
+    }
+
+    /**
+     * Shows the texts from the given publisher as notifications in the given
+     * UI, with at most three notifications visible at a time. The
+     * notifications use the same duration and position as
+     * {@link Notification#show(String)}.
+     *
+     * @param ui
+     *            the UI to show the notifications in, not {@code null}
+     * @param publisher
+     *            the publisher of the notification texts, not {@code null}
+     * @return a handle that can be used for cancelling the subscription
+     */
+    public static Registration subscribe(UI ui,
+            Publisher<? extends String> publisher) {
+        return subscribe(ui, publisher,
+                text -> new Notification(text,
+                        Notification.DEFAULT_DURATION,
+                        Notification.DEFAULT_POSITION),
+                DEFAULT_MAX_VISIBLE, 0);
+    }
+
+    /**
+     * Shows the items from the given publisher as notifications in the given
+     * UI.
+     * <p>
+     * Note: The stream stalls if the created notifications do not close on
+     * their own and {@code maxVisible} notifications are kept open.
+     *
+     * @param <T>
+     *            the type of items received from the publisher
+     * @param ui
+     *            the UI to show the notifications in, not {@code null}
+     * @param publisher
+     *            the publisher of the items, not {@code null}
+     * @param factory
+     *            function creating a closed notification for an item, run
+     *            while holding the session lock, not {@code null}
+     * @param maxVisible
+     *            the maximum number of notifications from the publisher that
+     *            are open at the same time
+     * @param maxPerSecond
+     *            the maximum number of items requested per second, or
+     *            {@code 0} to only limit by the number of visible
+     *            notifications
+     * @return a handle that can be used for cancelling the subscription
+     */
+    public static <T> Registration subscribe(UI ui,
+            Publisher<? extends T> publisher,
+            SerializableFunction<T, Notification> factory, int maxVisible,
+            int maxPerSecond) {
+        Objects.requireNonNull(ui, "UI should not be null");
+        Objects.requireNonNull(publisher, "Publisher should not be null");
+        Objects.requireNonNull(factory, "Factory should not be null");
+        if (maxVisible <= 0 || maxPerSecond < 0) {
+            throw new IllegalArgumentException(
+                    "Maximum visible must be positive and maximum per second cannot be negative");
+        }
+        NotificationSubscriber<T> subscriber = new NotificationSubscriber<>(
+                ui, factory, maxVisible, maxPerSecond);
+        publisher.subscribe(subscriber);
+        return subscriber::cancel;
+    }
+
+    @Override
+    public void onSubscribe(Subscription subscription) {
+        Objects.requireNonNull(subscription,
+                "Subscription should not be null");
+        if (this.subscription != null || done) {
+            subscription.cancel();
+            return;
+        }
+        this.subscription = subscription;
+        access(() -> {
+            detachRegistration = ui.addDetachListener(event -> cancel());
+            requestMore();
+        });
+    }
+
+    @Override
+    public void onNext(T item) {
+        Objects.requireNonNull(item, "Item should not be null");
+        if (done) {
+            return;
+        }
+        // Never more buffered than requested, which is at most maxVisible
+        if (buffered.incrementAndGet() > maxVisible) {
+            Subscription current = subscription;
+            if (current != null) {
+                current.cancel();
+            }
+            onError(new IllegalStateException(
+                    "The publisher sent more items than requested"));
+            return;
+        }
+        buffer.add(item);
+        if (drainScheduled.compareAndSet(false, true)) {
+            access(this::drain);
+        }
+    }
+
+    @Override
+    public void onError(Throwable error) {
+        finish(error);
+    }
+
+    @Override
+    public void onComplete() {
+        finish(null);
+    }
+
+    private void finish(Throwable error) {
+        done = true;
+        // Queued after any pending drain, so received items are still shown
+        boolean queued = access(() -> {
+            drain();
+            removeDetachListener();
+            if (error != null) {
+                ui.getSession().getErrorHandler().error(new ErrorEvent(error));
+            }
+        });
+        if (!queued && error != null) {
+            LoggerFactory.getLogger(NotificationSubscriber.class)
+                    .error("Notification publisher failed", error);
+        }
+    }
+
+    private void cancel() {
+        done = true;
+        buffer.clear();
+        Subscription current = subscription;
+        if (current != null) {
+            current.cancel();
+        }
+        VaadinSession session = ui.getSession();
+        if (session != null && session.hasLock()) {
+            removeDetachListener();
+        }
+    }
+
+    private void drain() {
+        drainScheduled.set(false);
+        T item;
+        while ((item = buffer.poll()) != null) {
+            buffered.decrementAndGet();
+            outstanding--;
+            Notification notification = factory.apply(item);
+            notification.open();
+            if (notification.isOpened()) {
+                visible++;
+                notification.whenClosed().thenRun(() -> {
+                    visible--;
+                    requestMore();
+                });
+            }
+        }
+        requestMore();
+    }
+
+    private void requestMore() {
+        Subscription current = subscription;
+        if (done || current == null) {
+            // Not restored when the session is deserialized
+            return;
+        }
+        long wanted = maxVisible - visible - outstanding;
+        if (maxPerSecond > 0) {
+            long now = System.currentTimeMillis();
+            if (now - rateWindowStart >= 1000) {
+                rateWindowStart = now;
+                rateWindowCount = 0;
+            }
+            long allowed = maxPerSecond - rateWindowCount;
+            if (wanted > allowed && !retryScheduled) {
+                retryScheduled = true;
+                VaadinSession session = ui.getSession();
+                NotificationScheduler
+                        .get(session == null ? null : session.getService())
+                        .schedule(1000 - (now - rateWindowStart),
+                                () -> access(() -> {
+                                    retryScheduled = false;
+                                    requestMore();
+                                }));
+            }
+            wanted = Math.min(wanted, allowed);
+        }
+        if (wanted > 0) {
+            outstanding += wanted;
+            rateWindowCount += wanted;
+            current.request(wanted);
+        }
+    }
+
+    private void removeDetachListener() {
+        if (detachRegistration != null) {
+            detachRegistration.remove();
+            detachRegistration = null;
+        }
+    }
+
+    private boolean access(Command command) {
+        try {
+            ui.access(command);
+            return true;
+        } catch (UIDetachedException e) {
+            cancel();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright 2000-2019 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.notification;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.WeakHashMap;
+
+import com.vaadin.flow.component.ComponentUtil;
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.notification.NotificationInspector.UiCounters;
+import com.vaadin.flow.server.VaadinSession;
+import com.vaadin.flow.shared.Registration;
+
+/**
+ * Per-UI registry of open notifications, wherever they are in the component
+ * tree. The registry is stored as component data of the UI it belongs to and
+ * only holds weak references, so notifications that are dropped by the
+ * application without being closed do not leak.
+ * <p>
+ * Changes are published to the {@link NotificationInspector} of the service.
+ *
+ * @author Vaadin Ltd
+ */
+class OpenNotifications implements Serializable {
+
+    private transient Map<Notification, Long> open = new WeakHashMap<>();
+    private transient Map<String, WeakReference<Notification>> byId =
+            new HashMap<>();
+    private transient long oldestOpenedAt = Long.MAX_VALUE;
+    private transient UiCounters counters;
+    private Registration detachRegistration;
+
+    /**
+     * Gets the registry of the given UI.
+     *
+     * @param ui
+     *            the UI to get the registry for, not {@code null}
+     * @return the registry, or {@code null} if no notification has been opened
+     *         in the UI
+     */
+    static OpenNotifications get(UI ui) {
+        OpenNotifications registry = ComponentUtil.getData(ui,
+                OpenNotifications.class);
+        if (registry != null && registry.counters == null) {
+            // Not published yet after deserialization
+            registry.bind(ui);
+        }
+        return registry;
+    }
+
+    /**
+     * Gets the registry of the given UI, creating it if needed.
+     *
+     * @param ui
+     *            the UI to get the registry for, not {@code null}
+     * @return the registry, not {@code null}
+     */
+    static OpenNotifications getOrCreate(UI ui) {
+        OpenNotifications registry = get(ui);
+        if (registry == null) {
+            registry = new OpenNotifications();
+            ComponentUtil.setData(ui, OpenNotifications.class, registry);
+            registry.bind(ui);
+        }
+        return registry;
+    }
+
+    /**
+     * Registers a notification as open.
+     *
+     * @param notification
+     *            the opened notification
+     * @return {@code true} if the notification was not registered before
+     */
+    boolean add(Notification notification) {
+        return add(notification, System.currentTimeMillis());
+    }
+
+    private boolean add(Notification notification, long openedAt) {
+        if (open.containsKey(notification)) {
+            return false;
+        }
+        open.put(notification, openedAt);
+        notification.getId().ifPresent(
+                id -> byId.put(id, new WeakReference<>(notification)));
+        oldestOpenedAt = Math.min(oldestOpenedAt, openedAt);
+        publish();
+        return true;
+    }
+
+    /**
+     * Unregisters a notification that has been closed.
+     *
+     * @param notification
+     *            the closed notification
+     * @return {@code true} if the notification was registered
+     */
+    boolean remove(Notification notification) {
+        Long openedAt = open.remove(notification);
+        if (openedAt == null) {
+            return false;
+        }
+        notification.getId().ifPresent(id -> removeId(id, notification));
+        if (openedAt == oldestOpenedAt) {
+            oldestOpenedAt = open.values().stream().mapToLong(Long::longValue)
+                    .min().orElse(Long.MAX_VALUE);
+        }
+        publish();
+        return true;
+    }
+
+    /**
+     * Updates the id of a registered notification.
+     *
+     * @param notification
+     *            the notification whose id has changed
+     * @param oldId
+     *            the previous id, or {@code null} if it had none
+     * @param newId
+     *            the new id, or {@code null} if it was removed
+     */
+    void updateId(Notification notification, String oldId, String newId) {
+        if (!open.containsKey(notification)) {
+            return;
+        }
+        if (oldId != null) {
+            removeId(oldId, notification);
+        }
+        if (newId != null) {
+            byId.put(newId, new WeakReference<>(notification));
+        }
+    }
+
+    /**
+     * Gets the number of open notifications.
+     *
+     * @return the number of open notifications
+     */
+    int size() {
+        return open.size();
+    }
+
+    /**
+     * Finds an open notification by its id.
+     *
+     * @param id
+     *            the id to look for
+     * @return the open notification with the id, or an empty optional if
+     *         there is none
+     */
+    Optional<Notification> find(String id) {
+        WeakReference<Notification> reference = byId.get(id);
+        Notification notification = reference == null ? null
+                : reference.get();
+        if (reference != null && notification == null) {
+            byId.remove(id);
+        }
+        return Optional.ofNullable(notification);
+    }
+
+    /**
+     * Gets a snapshot of the open notifications.
+     *
+     * @return the open notifications, in no particular order
+     */
+    List<Notification> getAll() {
+        return new ArrayList<>(open.keySet());
+    }
+
+    private void bind(UI ui) {
+        VaadinSession session = ui.getSession();
+        if (session == null || session.getService() == null) {
+            return;
+        }
+        counters = NotificationInspector.get(session.getService())
+                .register(session.getSession() == null ? null
+                        : session.getSession().getId(), ui.getUIId());
+        if (detachRegistration == null) {
+            detachRegistration = ui.addDetachListener(event -> unbind());
+        }
+        publish();
+    }
+
+    private void unbind() {
+        if (counters != null) {
+            counters.unregister();
+        }
+    }
+
+    private void publish() {
+        if (counters != null) {
+            counters.update(open.size(), oldestOpenedAt);
+        }
+    }
+
+    private void removeId(String id, Notification notification) {
+        WeakReference<Notification> reference = byId.get(id);
+        if (reference != null && reference.get() == notification) {
+            byId.remove(id);
+        }
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.writeObject(new HashMap<>(open));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in)
+            throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        open = new WeakHashMap<>();
+        byId = new HashMap<>();
+        oldestOpenedAt = Long.MAX_VALUE;
+        ((Map<Notification, Long>) in.readObject()).forEach(this::add);
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2000-2019 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.notification;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.vaadin.flow.component.ComponentUtil;
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.notification.Notification.OpenedChangeBatchEvent;
+
+/**
+ * Open and close transitions of the notifications of a UI during one round
+ * trip, delivered as a single {@link OpenedChangeBatchEvent} before the
+ * response is written. The batch is stored as component data of the UI it
+ * belongs to, and transitions are only collected while the UI has batch
+ * listeners.
+ *
+ * @author Vaadin Ltd
+ */
+class OpenedChangeBatch implements Serializable {
+
+    private List<Notification> opened = new ArrayList<>();
+    private List<Notification> closed = new ArrayList<>();
+    private boolean fromClient;
+
+    /**
+     * Records a transition of a notification.
+     *
+     * @param ui
+     *            the UI of the notification, not {@code null}
+     * @param notification
+     *            the notification that was opened or closed
+     * @param open
+     *            {@code true} if the notification was opened, {@code false}
+     *            if it was closed
+     * @param fromClient
+     *            {@code true} if the transition was reported by the client
+     */
+    static void record(UI ui, Notification notification, boolean open,
+            boolean fromClient) {
+        if (!ComponentUtil.hasEventListener(ui,
+                OpenedChangeBatchEvent.class)) {
+            return;
+        }
+        OpenedChangeBatch batch = ComponentUtil.getData(ui,
+                OpenedChangeBatch.class);
+        if (batch == null) {
+            batch = new OpenedChangeBatch();
+            ComponentUtil.setData(ui, OpenedChangeBatch.class, batch);
+            ui.beforeClientResponse(ui, context -> fire(context.getUI()));
+        }
+        (open ? batch.opened : batch.closed).add(notification);
+        batch.fromClient |= fromClient;
+    }
+
+    private static void fire(UI ui) {
+        OpenedChangeBatch batch = ComponentUtil.getData(ui,
+                OpenedChangeBatch.class);
+        ComponentUtil.setData(ui, OpenedChangeBatch.class, null);
+        if (batch != null) {
+            ComponentUtil.fireEvent(ui, new OpenedChangeBatchEvent(ui,
+                    batch.fromClient, batch.opened, batch.closed));
+        }
+    }
+}
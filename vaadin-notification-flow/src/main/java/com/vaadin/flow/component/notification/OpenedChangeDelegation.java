@@ -0,0 +1,129 @@
+/*
+ * Copyright 2000-2019 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.notification;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.vaadin.flow.component.ComponentUtil;
+import com.vaadin.flow.component.UI;
+
+import elemental.json.JsonArray;
+import elemental.json.JsonObject;
+
+/**
+ * Per-UI routing of delegated {@code opened-changed} events. The client does
+ * not send the events of notifications with the
+ * {@value Notification#OPENED_CHANGE_BATCH_ATTRIBUTE} attribute one by one;
+ * instead, it collects them and sends them in one {@value #CHANGES_EVENT}
+ * event on the UI element, which is routed here to the right notifications.
+ * The delegation is stored as component data of the UI it belongs to.
+ *
+ * @author Vaadin Ltd
+ */
+class OpenedChangeDelegation implements Serializable {
+
+    static final String CHANGES_EVENT = "vaadin-notification-opened-changes";
+
+    private static final String CHANGES = "event.detail";
+
+    private final Map<String, Notification> delegated = new HashMap<>();
+    private int nextId;
+
+    /**
+     * Gets the delegation of the given UI.
+     *
+     * @param ui
+     *            the UI to get the delegation for, not {@code null}
+     * @return the delegation, or {@code null} if no notification has been
+     *         delegated in the UI
+     */
+    static OpenedChangeDelegation get(UI ui) {
+        return ComponentUtil.getData(ui, OpenedChangeDelegation.class);
+    }
+
+    /**
+     * Gets the delegation of the given UI, creating it if needed.
+     *
+     * @param ui
+     *            the UI to get the delegation for, not {@code null}
+     * @return the delegation, not {@code null}
+     */
+    static OpenedChangeDelegation getOrCreate(UI ui) {
+        OpenedChangeDelegation delegation = get(ui);
+        if (delegation == null) {
+            OpenedChangeDelegation created = new OpenedChangeDelegation();
+            ComponentUtil.setData(ui, OpenedChangeDelegation.class, created);
+            ui.getElement()
+                    .addEventListener(CHANGES_EVENT,
+                            event -> created.dispatch(event.getEventData()
+                                    .getArray(CHANGES)))
+                    .addEventData(CHANGES);
+            delegation = created;
+        }
+        return delegation;
+    }
+
+    /**
+     * Starts routing the delegated events of a notification and gives it the
+     * id the client reports its changes with.
+     *
+     * @param notification
+     *            the notification attached to the UI
+     * @return the id of the notification
+     */
+    String delegate(Notification notification) {
+        String id = notification.getElement()
+                .getAttribute(Notification.OPENED_CHANGE_BATCH_ATTRIBUTE);
+        if (id == null || delegated.get(id) != notification) {
+            id = String.valueOf(nextId++);
+            delegated.put(id, notification);
+        }
+        return id;
+    }
+
+    /**
+     * Stops routing the delegated events of a notification, for example when
+     * it is detached.
+     *
+     * @param notification
+     *            the notification to stop routing
+     */
+    void undelegate(Notification notification) {
+        delegated.values().remove(notification);
+    }
+
+    /**
+     * Gets the number of delegated notifications.
+     *
+     * @return the number of delegated notifications
+     */
+    int size() {
+        return delegated.size();
+    }
+
+    private void dispatch(JsonArray changes) {
+        for (int i = 0; i < changes.length(); i++) {
+            JsonObject change = changes.getObject(i);
+            Notification notification = delegated.get(change.getString("id"));
+            if (notification != null) {
+                notification.openedChangedFromClient(
+                        change.getBoolean("opened"));
+            }
+        }
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2000-2019 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.notification;
+
+import java.io.Serializable;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import com.vaadin.flow.component.ComponentUtil;
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.notification.Notification.OverflowPolicy;
+import com.vaadin.flow.function.SerializableFunction;
+
+/**
+ * Per-UI bound on notifications that have been opened on the server but whose
+ * opening the client has not yet acknowledged with an {@code opened-changed}
+ * event. The bound is stored as component data of the UI it belongs to.
+ *
+ * @author Vaadin Ltd
+ */
+class PendingNotifications implements Serializable {
+
+    private final Set<Notification> pending = new LinkedHashSet<>();
+    private int limit;
+    private OverflowPolicy policy;
+    private SerializableFunction<Integer, String> summaryText;
+
+    private Notification summary;
+    private int coalesced;
+
+    /**
+     * Gets the pending notifications of the given UI.
+     *
+     * @param ui
+     *            the UI to get the pending notifications for, not
+     *            {@code null}
+     * @return the pending notifications, or {@code null} if there is no limit
+     *         for the UI
+     */
+    static PendingNotifications get(UI ui) {
+        return ComponentUtil.getData(ui, PendingNotifications.class);
+    }
+
+    /**
+     * Sets the limit of pending notifications for the given UI.
+     *
+     * @param ui
+     *            the UI to configure, not {@code null}
+     * @param limit
+     *            the maximum number of pending notifications, or {@code 0} for
+     *            no limit
+     * @param policy
+     *            the policy for notifications opened above the limit, not
+     *            {@code null}
+     * @param summaryText
+     *            the text of the summary notification for the given number of
+     *            coalesced notifications, only used with
+     *            {@link OverflowPolicy#COALESCE}
+     */
+    static void setLimit(UI ui, int limit, OverflowPolicy policy,
+            SerializableFunction<Integer, String> summaryText) {
+        if (limit < 0) {
+            throw new IllegalArgumentException(
+                    "Pending limit cannot be negative");
+        }
+        if (limit == 0) {
+            ComponentUtil.setData(ui, PendingNotifications.class, null);
+            return;
+        }
+        PendingNotifications pendingNotifications = get(ui);
+        if (pendingNotifications == null) {
+            pendingNotifications = new PendingNotifications();
+            ComponentUtil.setData(ui, PendingNotifications.class,
+                    pendingNotifications);
+        }
+        pendingNotifications.limit = limit;
+        pendingNotifications.policy = policy;
+        pendingNotifications.summaryText = summaryText;
+    }
+
+    /**
+     * Decides whether a notification may be opened, and keeps track of it
+     * until the client acknowledges it if it may.
+     *
+     * @param notification
+     *            the notification that is being opened
+     * @return {@code true} if the notification may be opened, {@code false}
+     *         if it should stay closed
+     */
+    boolean admit(Notification notification) {
+        if (notification == summary || pending.contains(notification)) {
+            return true;
+        }
+        if (pending.size() >= limit) {
+            switch (policy) {
+            case DROP_NEWEST:
+                return false;
+            case COALESCE:
+                coalesce(notification);
+                return false;
+            default:
+                Iterator<Notification> oldest = pending.iterator();
+                Notification dropped = oldest.next();
+                oldest.remove();
+                dropped.close();
+            }
+        }
+        pending.add(notification);
+        return true;
+    }
+
+    /**
+     * Stops tracking a notification once the client has reported its state,
+     * it has been closed on the server, or it has been detached.
+     *
+     * @param notification
+     *            the notification to stop tracking
+     */
+    void acknowledge(Notification notification) {
+        pending.remove(notification);
+    }
+
+    /**
+     * Gets the number of notifications waiting for acknowledgement.
+     *
+     * @return the number of pending notifications
+     */
+    int size() {
+        return pending.size();
+    }
+
+    private void coalesce(Notification notification) {
+        if (summary == null) {
+            summary = new Notification();
+        }
+        if (!summary.isOpened()) {
+            coalesced = 0;
+            summary.setDuration(notification.getDuration());
+            summary.setPosition(notification.getPosition());
+        }
+        coalesced++;
+        summary.setText(summaryText.apply(coalesced));
+        summary.open();
+    }
+}
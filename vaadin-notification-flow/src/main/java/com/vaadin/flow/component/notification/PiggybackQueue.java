@@ -0,0 +1,184 @@
+/*
+ * Copyright 2000-2019 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.notification;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.vaadin.flow.component.ComponentUtil;
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.UIDetachedException;
+import com.vaadin.flow.shared.Registration;
+import com.vaadin.flow.shared.communication.PushMode;
+
+/**
+ * Per-UI queue of notifications with {@link Notification.Delivery#PIGGYBACK}
+ * delivery that were opened outside of a client request. Queued
+ * notifications are opened together right before the next response to the
+ * client, or when the coalescing window expires, whichever comes first. The
+ * queue is stored as component data of the UI it belongs to.
+ *
+ * @author Vaadin Ltd
+ */
+class PiggybackQueue implements Serializable {
+
+    static final long DEFAULT_WINDOW_MILLIS = 1000;
+
+    private final Set<Notification> queued = new LinkedHashSet<>();
+    private long windowMillis = DEFAULT_WINDOW_MILLIS;
+    private boolean flushing;
+    private boolean responseScheduled;
+    private transient Registration windowTimer;
+
+    /**
+     * Gets the queue of the given UI.
+     *
+     * @param ui
+     *            the UI to get the queue for, not {@code null}
+     * @return the queue, or {@code null} if nothing has been queued in the UI
+     */
+    static PiggybackQueue get(UI ui) {
+        PiggybackQueue queue = ComponentUtil.getData(ui,
+                PiggybackQueue.class);
+        if (queue != null && !queue.queued.isEmpty()
+                && queue.windowTimer == null) {
+            // The timer is not restored when the session is deserialized
+            queue.startWindowTimer(ui);
+        }
+        return queue;
+    }
+
+    /**
+     * Gets the queue of the given UI, creating it if needed.
+     *
+     * @param ui
+     *            the UI to get the queue for, not {@code null}
+     * @return the queue, not {@code null}
+     */
+    static PiggybackQueue getOrCreate(UI ui) {
+        PiggybackQueue queue = get(ui);
+        if (queue == null) {
+            queue = new PiggybackQueue();
+            ComponentUtil.setData(ui, PiggybackQueue.class, queue);
+        }
+        return queue;
+    }
+
+    /**
+     * Sets the coalescing window of the queue.
+     *
+     * @param windowMillis
+     *            the maximum time in milliseconds a notification waits for
+     *            the next response
+     */
+    void setWindow(long windowMillis) {
+        this.windowMillis = windowMillis;
+    }
+
+    /**
+     * Checks whether the queue is currently opening its notifications.
+     *
+     * @return {@code true} while flushing, {@code false} otherwise
+     */
+    boolean isFlushing() {
+        return flushing;
+    }
+
+    /**
+     * Queues a notification for opening.
+     *
+     * @param ui
+     *            the UI of the queue
+     * @param notification
+     *            the notification to open later
+     */
+    void add(UI ui, Notification notification) {
+        queued.add(notification);
+        if (!responseScheduled) {
+            responseScheduled = true;
+            // Runs with the next response, without making the UI dirty
+            ui.beforeClientResponse(ui, context -> flush());
+        }
+        if (windowTimer == null) {
+            startWindowTimer(ui);
+        }
+    }
+
+    /**
+     * Checks whether the coalescing window of the queued notifications is
+     * running.
+     *
+     * @return {@code true} if the window timer is running
+     */
+    boolean hasWindowTimer() {
+        return windowTimer != null;
+    }
+
+    /**
+     * Removes a notification from the queue, for example when it is closed
+     * before it has been opened.
+     *
+     * @param notification
+     *            the notification to remove
+     */
+    void remove(Notification notification) {
+        queued.remove(notification);
+    }
+
+    /**
+     * Opens all queued notifications.
+     */
+    void flush() {
+        responseScheduled = false;
+        if (windowTimer != null) {
+            windowTimer.remove();
+            windowTimer = null;
+        }
+        List<Notification> batch = new ArrayList<>(queued);
+        queued.clear();
+        flushing = true;
+        try {
+            batch.forEach(Notification::open);
+        } finally {
+            flushing = false;
+        }
+    }
+
+    private void startWindowTimer(UI ui) {
+        windowTimer = NotificationScheduler
+                .get(ui.getSession() == null ? null
+                        : ui.getSession().getService())
+                .schedule(windowMillis, () -> flushWindow(ui));
+    }
+
+    private void flushWindow(UI ui) {
+        try {
+            ui.access(() -> {
+                windowTimer = null;
+                flush();
+                if (ui.getPushConfiguration()
+                        .getPushMode() == PushMode.MANUAL) {
+                    ui.push();
+                }
+            });
+        } catch (UIDetachedException e) {
+            // Nothing to deliver to
+        }
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2000-2019 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.notification;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.vaadin.flow.server.Command;
+
+/**
+ * Hierarchical timing wheel keeping timeouts in buckets by their deadline
+ * tick.
+ * <p>
+ * The wheel has four levels of 64 slots. A timeout is kept on the lowest level
+ * whose range covers its deadline, and is moved down one or more levels when
+ * the wheel reaches the start of its slot. Adding, removing and expiring a
+ * timeout are constant time operations, regardless of how many timeouts are
+ * pending.
+ * <p>
+ * This class is not thread safe, callers are expected to synchronize.
+ *
+ * @author Vaadin Ltd
+ */
+class TimingWheel {
+
+    private static final int BITS = 6;
+    private static final int SLOTS = 1 << BITS;
+    private static final int MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+
+    private final Timeout[] buckets = new Timeout[LEVELS * SLOTS];
+    private long currentTick;
+    private int size;
+
+    /**
+     * A task waiting in the wheel for its deadline tick.
+     */
+    static class Timeout implements Serializable {
+        private final long deadlineTick;
+        private final Command task;
+
+        private transient Timeout previous;
+        private transient Timeout next;
+        private transient int bucket = -1;
+
+        Timeout(long deadlineTick, Command task) {
+            this.deadlineTick = deadlineTick;
+            this.task = task;
+        }
+
+        long getDeadlineTick() {
+            return deadlineTick;
+        }
+
+        Command getTask() {
+            return task;
+        }
+    }
+
+    /**
+     * Gets the tick the wheel has most recently advanced to.
+     *
+     * @return the current tick
+     */
+    long getCurrentTick() {
+        return currentTick;
+    }
+
+    /**
+     * Gets the number of timeouts in the wheel.
+     *
+     * @return the number of pending timeouts
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Adds a timeout to the wheel. A deadline that is not after the current
+     * tick expires on the next tick.
+     *
+     * @param timeout
+     *            the timeout to add, not already in the wheel
+     */
+    void add(Timeout timeout) {
+        place(timeout, currentTick + 1);
+        size++;
+    }
+
+    /**
+     * Removes a timeout from the wheel if it is still pending.
+     *
+     * @param timeout
+     *            the timeout to remove
+     * @return {@code true} if the timeout was pending, {@code false} if it has
+     *         already expired or been removed
+     */
+    boolean remove(Timeout timeout) {
+        if (timeout.bucket < 0) {
+            return false;
+        }
+        if (timeout.previous == null) {
+            buckets[timeout.bucket] = timeout.next;
+        } else {
+            timeout.previous.next = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.previous = timeout.previous;
+        }
+        timeout.previous = null;
+        timeout.next = null;
+        timeout.bucket = -1;
+        size--;
+        return true;
+    }
+
+    /**
+     * Advances the wheel by one tick.
+     *
+     * @return the timeouts whose deadline is the new current tick, in no
+     *         particular order
+     */
+    List<Timeout> advance() {
+        currentTick++;
+        for (int level = LEVELS - 1; level > 0; level--) {
+            long levelMask = (1L << (BITS * level)) - 1;
+            if ((currentTick & levelMask) == 0) {
+                Timeout timeout = take(level * SLOTS + digit(currentTick,
+                        level));
+                while (timeout != null) {
+                    Timeout next = timeout.next;
+                    timeout.next = null;
+                    place(timeout, currentTick);
+                    timeout = next;
+                }
+            }
+        }
+
+        List<Timeout> expired = new ArrayList<>();
+        Timeout timeout = take(digit(currentTick, 0));
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            timeout.next = null;
+            timeout.bucket = -1;
+            expired.add(timeout);
+            size--;
+            timeout = next;
+        }
+        return expired;
+    }
+
+    private void place(Timeout timeout, long earliestTick) {
+        long deadline = Math.max(timeout.deadlineTick, earliestTick);
+        int level = 0;
+        while (level < LEVELS - 1 && (deadline >>> (BITS
+                * (level + 1))) != (currentTick >>> (BITS * (level + 1)))) {
+            level++;
+        }
+        int bucket = level * SLOTS + digit(deadline, level);
+
+        Timeout head = buckets[bucket];
+        timeout.previous = null;
+        timeout.next = head;
+        if (head != null) {
+            head.previous = timeout;
+        }
+        timeout.bucket = bucket;
+        buckets[bucket] = timeout;
+    }
+
+    private Timeout take(int bucket) {
+        Timeout head = buckets[bucket];
+        buckets[bucket] = null;
+        for (Timeout timeout = head; timeout != null; timeout = timeout.next) {
+            timeout.previous = null;
+        }
+        return head;
+    }
+
+    private static int digit(long tick, int level) {
+        return (int) ((tick >>> (BITS * level)) & MASK);
+    }
+}
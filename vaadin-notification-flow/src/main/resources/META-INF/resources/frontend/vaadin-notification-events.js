@@ -0,0 +1,50 @@
+/*
+ * Notifications with the lazy-close attribute do not send an opened-changed
+ * request when they close. Their ids are acknowledged in one batched event on
+ * the body, which is the element of the UI, instead.
+ *
+ * Notifications with the opened-change-batch attribute do not send their
+ * opened-changed events either. The changes of all of them are collected and
+ * sent in one batched event on the body when the current task is done.
+ */
+window.Vaadin = window.Vaadin || {};
+window.Vaadin.Flow = window.Vaadin.Flow || {};
+if (!window.Vaadin.Flow.notificationLazyClose) {
+  window.Vaadin.Flow.notificationLazyClose = { batchTimeout: 10000, closed: [] };
+  window.Vaadin.Flow.notificationOpenedChanges = { changes: [] };
+  window.addEventListener('opened-changed', e => {
+    const notification = e.target;
+    if (notification.localName !== 'vaadin-notification') {
+      return;
+    }
+    if (!e.detail.value && notification.getAttribute('lazy-close')) {
+      // Capture phase, so the listeners added by Flow never see the event
+      e.stopImmediatePropagation();
+      const lazyClose = window.Vaadin.Flow.notificationLazyClose;
+      lazyClose.closed.push(notification.getAttribute('lazy-close'));
+      if (!lazyClose.timer) {
+        lazyClose.timer = setTimeout(() => {
+          lazyClose.timer = undefined;
+          document.body.dispatchEvent(new CustomEvent('vaadin-notification-lazy-closed', {
+            detail: lazyClose.closed.splice(0)
+          }));
+        }, lazyClose.batchTimeout);
+      }
+    } else if (notification.getAttribute('opened-change-batch')) {
+      e.stopImmediatePropagation();
+      const openedChanges = window.Vaadin.Flow.notificationOpenedChanges;
+      openedChanges.changes.push({
+        id: notification.getAttribute('opened-change-batch'),
+        opened: !!e.detail.value
+      });
+      if (!openedChanges.timer) {
+        openedChanges.timer = setTimeout(() => {
+          openedChanges.timer = undefined;
+          document.body.dispatchEvent(new CustomEvent('vaadin-notification-opened-changes', {
+            detail: openedChanges.changes.splice(0)
+          }));
+        }, 0);
+      }
+    }
+  }, true);
+}
@@ -0,0 +1,26 @@
+/*
+ * Loads the vaadin-notification web component and the renderer of components
+ * added to notifications on demand, so that they are bundled in a separate
+ * chunk instead of the initial bundle of every route. Notification elements
+ * added before the chunk has loaded are upgraded once the element is defined,
+ * keeping the properties set on them.
+ */
+window.Vaadin = window.Vaadin || {};
+window.Vaadin.Flow = window.Vaadin.Flow || {};
+window.Vaadin.Flow.notificationLoader = window.Vaadin.Flow.notificationLoader || {
+  load(themeUrl) {
+    if (!this._loaded) {
+      // Static import paths, so that webpack can create the chunk
+      let component;
+      if (themeUrl && themeUrl.indexOf('theme/lumo/') >= 0) {
+        component = import('@vaadin/vaadin-notification/theme/lumo/vaadin-notification.js');
+      } else if (themeUrl && themeUrl.indexOf('theme/material/') >= 0) {
+        component = import('@vaadin/vaadin-notification/theme/material/vaadin-notification.js');
+      } else {
+        component = import('@vaadin/vaadin-notification/src/vaadin-notification.js');
+      }
+      this._loaded = Promise.all([component, import('./flow-component-renderer.js')]);
+    }
+    return this._loaded;
+  }
+};
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2000-2019 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.notification;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.vaadin.flow.component.notification.Notification.Priority;
+import com.vaadin.flow.component.notification.NotificationAdmissionController.Decision;
+
+public class NotificationAdmissionControllerTest {
+
+    private NotificationAdmissionController controller = new NotificationAdmissionController();
+
+    @Test
+    public void admit_notCountedTowardsRate() {
+        controller.setMaxRate(1);
+
+        Assert.assertEquals(Decision.ADMIT,
+                controller.admit(Priority.NORMAL, 0));
+        Assert.assertEquals(Decision.ADMIT,
+                controller.admit(Priority.NORMAL, 0));
+        Assert.assertFalse(controller.isOverloaded());
+    }
+
+    @Test
+    public void countOpened_maxRateReached_overloaded() {
+        // The rate is counted per second, retry if a second boundary passes
+        while (true) {
+            NotificationAdmissionController counted = new NotificationAdmissionController();
+            counted.setMaxRate(2);
+            counted.setMaxDeferrals(0);
+            long second = System.currentTimeMillis() / 1000;
+
+            counted.countOpened();
+            counted.countOpened();
+            Decision normal = counted.admit(Priority.NORMAL, 0);
+            Decision critical = counted.admit(Priority.CRITICAL, 0);
+
+            if (second == System.currentTimeMillis() / 1000) {
+                Assert.assertEquals(Decision.DROP, normal);
+                Assert.assertEquals(Decision.ADMIT, critical);
+                return;
+            }
+        }
+    }
+
+    @Test
+    public void isOverloaded_heapOccupancyNotExceeded_notOverloaded() {
+        controller.setMaxHeapOccupancy(1);
+
+        Assert.assertFalse(controller.isOverloaded());
+    }
+
+    @Test
+    public void get_sameService_sameController() {
+        Assert.assertSame(NotificationAdmissionController.get(null),
+                NotificationAdmissionController.get(null));
+        Assert.assertNotSame(controller,
+                NotificationAdmissionController.get(null));
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2000-2019 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.notification;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.server.VaadinSession;
+
+public class NotificationDispatcherTest {
+
+    private List<Runnable> executed = new ArrayList<>();
+    private MockVaadinSession session = new MockVaadinSession();
+    private UI ui = new UI();
+
+    @Before
+    public void setUp() {
+        session.lock();
+        try {
+            ui.getInternals().setSession(session);
+        } finally {
+            session.unlock();
+        }
+    }
+
+    @Test
+    public void dispatch_sameSession_runsAtMostLimitAtATime() {
+        NotificationDispatcher dispatcher = new NotificationDispatcher(
+                executed::add, 2);
+        List<Integer> ran = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            int task = i;
+            dispatcher.dispatch(ui, target -> ran.add(task));
+        }
+        Assert.assertEquals(2, executed.size());
+
+        runNext();
+        Assert.assertEquals(2, executed.size());
+        runNext();
+        runNext();
+        runNext();
+        runNext();
+        Assert.assertTrue(executed.isEmpty());
+        Assert.assertEquals(5, ran.size());
+    }
+
+    @Test
+    public void dispatch_failingTask_releasesSlot() {
+        NotificationDispatcher dispatcher = new NotificationDispatcher(
+                executed::add, 1);
+        CompletableFuture<Void> failing = dispatcher.dispatch(ui, target -> {
+            throw new IllegalStateException();
+        });
+        CompletableFuture<Void> next = dispatcher.dispatch(ui, target -> {
+        });
+        Assert.assertEquals(1, executed.size());
+
+        runNext();
+
+        Assert.assertTrue(failing.isCompletedExceptionally());
+        Assert.assertEquals(1, executed.size());
+        runNext();
+        Assert.assertTrue(next.isDone());
+        Assert.assertFalse(next.isCompletedExceptionally());
+    }
+
+    @Test
+    public void dispatch_rejectedTask_releasesSlot() {
+        NotificationDispatcher dispatcher = new NotificationDispatcher(
+                task -> {
+                    throw new RejectedExecutionException();
+                }, 1);
+
+        CompletableFuture<Void> first = dispatcher.dispatch(ui, target -> {
+        });
+        CompletableFuture<Void> second = dispatcher.dispatch(ui, target -> {
+        });
+
+        assertRejected(first);
+        assertRejected(second);
+    }
+
+    @Test
+    public void dispatch_afterShutdown_completesExceptionally() {
+        NotificationDispatcher dispatcher = NotificationDispatcher.create();
+        dispatcher.shutdown();
+        VaadinSession session = new VaadinSession(null);
+        UI ui = new UI() {
+            @Override
+            public VaadinSession getSession() {
+                return session;
+            }
+        };
+
+        CompletableFuture<Void> future = dispatcher.dispatch(ui, target -> {
+        });
+
+        assertRejected(future);
+    }
+
+    @Test
+    public void dispatch_withoutSession_completesExceptionally() {
+        NotificationDispatcher dispatcher = new NotificationDispatcher(
+                executed::add, 1);
+
+        Assert.assertTrue(dispatcher.dispatch(new UI(), ui -> {
+        }).isCompletedExceptionally());
+        Assert.assertTrue(executed.isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_nonPositiveConcurrency_throws() {
+        new NotificationDispatcher(executed::add, 0);
+    }
+
+    private void runNext() {
+        executed.remove(0).run();
+    }
+
+    private static void assertRejected(CompletableFuture<Void> future) {
+        try {
+            future.getNow(null);
+            Assert.fail("The delivery should have been rejected");
+        } catch (CompletionException e) {
+            Assert.assertTrue(
+                    e.getCause() instanceof RejectedExecutionException);
+        }
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2000-2019 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.notification;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.vaadin.flow.component.notification.Notification.Position;
+import com.vaadin.flow.server.VaadinSession;
+
+public class NotificationHistoryTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private VaadinSession session = new VaadinSession(null) {
+        @Override
+        public boolean hasLock() {
+            return true;
+        }
+    };
+
+    private NotificationHistory history;
+
+    @Before
+    public void setUp() {
+        history = NotificationHistory.enable(session, 3);
+    }
+
+    @Test
+    public void enable_historyIsStoredInSession() {
+        Assert.assertSame(history, NotificationHistory.get(session).get());
+
+        NotificationHistory.disable(session);
+
+        Assert.assertFalse(NotificationHistory.get(session).isPresent());
+    }
+
+    @Test
+    public void add_moreThanCapacity_oldestRecordsAreEvicted() {
+        addAll("one", "two", "three", "four", "five");
+
+        Assert.assertEquals(3, history.size());
+        Assert.assertEquals(5, history.getTotalCount());
+        Assert.assertEquals(Arrays.asList("five", "four", "three"),
+                texts(history.getPage(0, 10)));
+        Assert.assertEquals(Arrays.asList("four"),
+                texts(history.getPage(1, 1)));
+        Assert.assertEquals(4, history.getPage(1, 1).get(0).getSequence());
+    }
+
+    @Test
+    public void getPage_filter_onlyMatchingRecordsAreReturned() {
+        Notification error = new Notification("error", 0, Position.TOP_END);
+        error.addThemeVariants(NotificationVariant.LUMO_ERROR);
+        history.add(new Notification("plain"));
+        history.add(error);
+        history.add(new Notification("top", 0, Position.TOP_END));
+
+        Assert.assertEquals(Arrays.asList("error"),
+                texts(history.getPage(0, 10, new NotificationHistory.Filter()
+                        .withVariant(NotificationVariant.LUMO_ERROR))));
+        Assert.assertEquals(Arrays.asList("top", "error"),
+                texts(history.getPage(0, 10, new NotificationHistory.Filter()
+                        .withPosition(Position.TOP_END))));
+        Assert.assertEquals(Arrays.asList("error"),
+                texts(history.getPage(1, 10, new NotificationHistory.Filter()
+                        .withPosition(Position.TOP_END))));
+    }
+
+    @Test
+    public void setSpillFile_evictedRecordsAreWrittenToFile()
+            throws IOException {
+        File spillFile = new File(temporaryFolder.getRoot(), "history");
+        history.setSpillFile(spillFile);
+
+        addAll("one", "two", "three", "four", "five");
+        history.flush();
+
+        List<NotificationHistory.Entry> spilled = NotificationHistory
+                .readSpillFile(spillFile);
+        Assert.assertEquals(Arrays.asList("one", "two"), texts(spilled));
+        Assert.assertEquals(0, spilled.get(0).getSequence());
+        Assert.assertEquals(Position.BOTTOM_START,
+                spilled.get(1).getPosition());
+    }
+
+    @Test
+    public void setSpillFile_unwritable_recordingContinues() {
+        // A directory cannot be opened for appending
+        history.setSpillFile(temporaryFolder.getRoot());
+
+        for (int i = 0; i < 300; i++) {
+            history.add(new Notification("Notification " + i));
+        }
+        history.flush();
+
+        Assert.assertEquals(3, history.size());
+        Assert.assertEquals(300, history.getTotalCount());
+    }
+
+    @Test
+    public void search_wordsAndVariant_matchingRecordsAreFound() {
+        history = NotificationHistory.enable(session, 100);
+        history.add(errorNotification("Order 4711 failed"));
+        history.add(new Notification("Order 4711 shipped"));
+        history.setSearchable(true);
+        history.add(errorNotification("Order 4712 failed"));
+        history.add(errorNotification("Payment for order 4711 declined"));
+
+        List<NotificationHistory.Entry> found = history.search(
+                new NotificationHistory.Query().withText("order 4711")
+                        .withVariant(NotificationVariant.LUMO_ERROR),
+                10);
+
+        Assert.assertEquals(Arrays.asList("Payment for order 4711 declined",
+                "Order 4711 failed"), texts(found));
+        Assert.assertEquals(1, history.search(
+                new NotificationHistory.Query().withText("order 4711"), 1)
+                .size());
+        Assert.assertTrue(history.search(
+                new NotificationHistory.Query().withText("4713"), 10)
+                .isEmpty());
+    }
+
+    @Test
+    public void search_timeRange_onlyRecordsInRangeAreFound()
+            throws InterruptedException {
+        history = NotificationHistory.enable(session, 100);
+        history.setSearchable(true);
+        history.add(new Notification("old"));
+        Thread.sleep(5);
+        Instant since = Instant.now();
+        history.add(new Notification("new"));
+
+        Assert.assertEquals(Arrays.asList("new"),
+                texts(history.search(
+                        new NotificationHistory.Query().since(since), 10)));
+        Assert.assertEquals(Arrays.asList("old"),
+                texts(history.search(
+                        new NotificationHistory.Query().until(since), 10)));
+    }
+
+    @Test
+    public void search_evictedRecordsAreNotFound() {
+        history.setSearchable(true);
+        addAll("error one", "error two", "error three", "error four");
+
+        Assert.assertEquals(Arrays.asList("error four", "error three",
+                "error two"),
+                texts(history.search(
+                        new NotificationHistory.Query().withText("ERROR"),
+                        10)));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void search_notSearchable_throws() {
+        history.search(new NotificationHistory.Query(), 10);
+    }
+
+    private static Notification errorNotification(String text) {
+        Notification notification = new Notification(text);
+        notification.addThemeVariants(NotificationVariant.LUMO_ERROR);
+        return notification;
+    }
+
+    private void addAll(String... texts) {
+        for (String text : texts) {
+            history.add(new Notification(text));
+        }
+    }
+
+    private static List<String> texts(List<NotificationHistory.Entry> page) {
+        return page.stream().map(NotificationHistory.Entry::getText)
+                .collect(Collectors.toList());
+    }
+}
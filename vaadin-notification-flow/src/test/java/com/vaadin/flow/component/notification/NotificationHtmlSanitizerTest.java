@@ -0,0 +1,120 @@
+/*
+ * Copyright 2000-2019 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.notification;
+
+import org.jsoup.safety.Whitelist;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.html.Div;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+@NotThreadSafe
+public class NotificationHtmlSanitizerTest {
+
+    private final NotificationHtmlSanitizer sanitizer = NotificationHtmlSanitizer
+            .getInstance();
+
+    @Before
+    public void setUp() {
+        UI.setCurrent(new UI());
+        sanitizer.setCacheSize(1000);
+    }
+
+    @After
+    public void tearDown() {
+        sanitizer.setWhitelist(Whitelist.basic());
+        sanitizer.setCacheSize(1000);
+        UI.setCurrent(null);
+    }
+
+    @Test
+    public void sanitize_allowedMarkupIsKept() {
+        Assert.assertEquals(
+                "<b>Saved</b> <a href=\"https://vaadin.com\" rel=\"nofollow\">details</a>",
+                sanitizer.sanitize(
+                        "<b>Saved</b> <a href=\"https://vaadin.com\">details</a>"));
+    }
+
+    @Test
+    public void sanitize_scriptsAndHandlersAreRemoved() {
+        Assert.assertEquals("<i>hello</i>", sanitizer.sanitize(
+                "<script>alert(1)</script><i onclick=\"alert(2)\">hello</i>"));
+        Assert.assertEquals("<a rel=\"nofollow\">link</a>", sanitizer
+                .sanitize("<a href=\"javascript:alert(3)\">link</a>"));
+        Assert.assertEquals("", sanitizer.sanitize(null));
+    }
+
+    @Test
+    public void sanitize_sameContent_sanitizedOnce() {
+        String first = sanitizer.sanitize("<b>repeated</b>");
+        String second = sanitizer.sanitize("<b>repeated</b>");
+
+        Assert.assertSame(first, second);
+        Assert.assertEquals(1, sanitizer.getCachedCount());
+    }
+
+    @Test
+    public void sanitize_moreThanCacheSize_leastRecentlyUsedEvicted() {
+        sanitizer.setCacheSize(2);
+        String one = sanitizer.sanitize("one");
+        String two = sanitizer.sanitize("two");
+        sanitizer.sanitize("one");
+        sanitizer.sanitize("three");
+
+        Assert.assertEquals(2, sanitizer.getCachedCount());
+        Assert.assertSame(one, sanitizer.sanitize("one"));
+        Assert.assertNotSame(two, sanitizer.sanitize("two"));
+    }
+
+    @Test
+    public void setWhitelist_cacheClearedAndNewListUsed() {
+        Assert.assertEquals("<b>bold</b>", sanitizer.sanitize("<b>bold</b>"));
+
+        sanitizer.setWhitelist(Whitelist.none());
+
+        Assert.assertEquals(0, sanitizer.getCachedCount());
+        Assert.assertEquals("bold", sanitizer.sanitize("<b>bold</b>"));
+    }
+
+    @Test
+    public void setHtml_sanitizedMarkupSetToTemplate() {
+        Notification notification = new Notification();
+        notification.setHtml("<b>Saved</b><img src=x onerror=alert(1)>");
+
+        Assert.assertEquals("<b>Saved</b>", getTemplateHtml(notification));
+        Assert.assertEquals("Saved", notification.getTextContent());
+    }
+
+    @Test
+    public void setHtml_componentsRemoved() {
+        Notification notification = new Notification(new Div());
+        notification.setHtml("<i>text</i>");
+
+        Assert.assertEquals(0, notification.getChildren().count());
+        Assert.assertEquals("<i>text</i>", getTemplateHtml(notification));
+    }
+
+    private static String getTemplateHtml(Notification notification) {
+        return notification.getElement().getChildren()
+                .filter(child -> "template".equals(child.getTag()))
+                .findFirst().get().getProperty("innerHTML");
+    }
+}
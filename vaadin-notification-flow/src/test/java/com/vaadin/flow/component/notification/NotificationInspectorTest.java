@@ -0,0 +1,111 @@
+/*
+ * Copyright 2000-2019 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.notification;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.vaadin.flow.component.notification.NotificationInspector.UiCounters;
+import com.vaadin.flow.component.notification.NotificationInspector.UiStatistics;
+
+public class NotificationInspectorTest {
+
+    private NotificationInspector inspector = new NotificationInspector(
+            "test");
+
+    @Test
+    public void update_totalOpenCountIsAggregated() {
+        UiCounters first = inspector.register("a", 0);
+        UiCounters second = inspector.register("b", 0);
+
+        first.update(3, 1000);
+        second.update(2, 2000);
+        first.update(1, 1000);
+
+        Assert.assertEquals(3, inspector.getTotalOpenCount());
+        Assert.assertEquals(2, inspector.getUiCount());
+    }
+
+    @Test
+    public void unregister_countsAreRemovedAndLaterUpdatesIgnored() {
+        UiCounters counters = inspector.register("a", 0);
+        counters.update(3, 1000);
+
+        counters.unregister();
+        counters.update(5, 1000);
+
+        Assert.assertEquals(0, inspector.getTotalOpenCount());
+        Assert.assertEquals(0, inspector.getUiCount());
+    }
+
+    @Test
+    public void getTopUis_descendingOpenCount() {
+        inspector.register("a", 0).update(1, 1000);
+        inspector.register("b", 0).update(5, 3000);
+        inspector.register("c", 0).update(3, 2000);
+        inspector.register("d", 0).update(0, Long.MAX_VALUE);
+
+        Assert.assertEquals("[b, c]", sessionIds(inspector.getTopUis(2)));
+        Assert.assertEquals("[b, c, a]", sessionIds(inspector.getTopUis(10)));
+    }
+
+    @Test
+    public void getLongestOpen_oldestFirst() {
+        inspector.register("a", 0).update(1, 2000);
+        inspector.register("b", 0).update(5, 3000);
+        inspector.register("c", 0).update(3, 1000);
+        inspector.register("d", 0).update(0, Long.MAX_VALUE);
+
+        Assert.assertEquals("[c, a]", sessionIds(inspector.getLongestOpen(2)));
+        Assert.assertEquals(1000, inspector.getLongestOpen(1).get(0)
+                .getOldestOpenedAt().toEpochMilli());
+    }
+
+    @Test
+    public void getTopUis_laterUpdateDoesNotChangeSnapshot() {
+        UiCounters counters = inspector.register("a", 0);
+        counters.update(2, 1000);
+        UiStatistics statistics = inspector.getTopUis(1).get(0);
+
+        counters.update(0, Long.MAX_VALUE);
+
+        Assert.assertEquals(2, statistics.getOpenCount());
+        Assert.assertEquals(1000,
+                statistics.getOldestOpenedAt().toEpochMilli());
+        Assert.assertTrue(inspector.getTopUis(1).isEmpty());
+        Assert.assertTrue(inspector.getLongestOpen(1).isEmpty());
+    }
+
+    @Test
+    public void setSampleSize_detailViewsExamineSubset() {
+        for (int i = 0; i < 1000; i++) {
+            inspector.register("s" + i, 0).update(1, 1000);
+        }
+        inspector.setSampleSize(10);
+
+        int examined = inspector.getTopUis(1000).size();
+        Assert.assertTrue(examined > 0 && examined < 100);
+        Assert.assertEquals(1000, inspector.getTotalOpenCount());
+    }
+
+    private static String sessionIds(List<UiStatistics> statistics) {
+        return statistics.stream().map(UiStatistics::getSessionId)
+                .collect(Collectors.toList()).toString();
+    }
+}
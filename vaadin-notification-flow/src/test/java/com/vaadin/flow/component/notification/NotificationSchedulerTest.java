@@ -0,0 +1,118 @@
+/*
+ * Copyright 2000-2019 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.notification;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.server.VaadinSession;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+@NotThreadSafe
+public class NotificationSchedulerTest {
+
+    private static final long TIMEOUT_MILLIS = 5000;
+
+    private MockVaadinSession session = new MockVaadinSession();
+    private UI ui = new UI();
+    private NotificationScheduler scheduler = NotificationScheduler.get(null);
+
+    @Before
+    public void setUp() {
+        session.lock();
+        VaadinSession.setCurrent(session);
+        ui.getInternals().setSession(session);
+        UI.setCurrent(ui);
+    }
+
+    @After
+    public void tearDown() {
+        UI.setCurrent(null);
+        VaadinSession.setCurrent(null);
+        while (session.hasLock()) {
+            session.unlock();
+        }
+    }
+
+    @Test
+    public void scheduleOpen_delayPassed_notificationOpened()
+            throws InterruptedException {
+        Notification notification = new Notification("foo");
+
+        notification.scheduleOpen(ui, Duration.ofMillis(1));
+        Assert.assertFalse(notification.isOpened());
+
+        // The opening is queued with UI.access once the delay has passed
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (!notification.isOpened()
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+            session.runPendingAccessTasks();
+        }
+        Assert.assertTrue(notification.isOpened());
+    }
+
+    @Test
+    public void scheduleOpen_uiDetached_openingCancelled()
+            throws InterruptedException {
+        int pending = scheduler.getPendingCount();
+        Notification notification = new Notification("foo");
+        notification.scheduleOpen(ui, Duration.ofMillis(200));
+        Assert.assertEquals(pending + 1, scheduler.getPendingCount());
+
+        session.removeUI(ui);
+
+        Assert.assertEquals(pending, scheduler.getPendingCount());
+        Thread.sleep(300);
+        session.runPendingAccessTasks();
+        Assert.assertFalse(notification.isOpened());
+    }
+
+    @Test
+    public void schedule_allTasksRun_tickerStops()
+            throws InterruptedException {
+        CountDownLatch ran = new CountDownLatch(1);
+
+        scheduler.schedule(1, ran::countDown);
+        Assert.assertTrue(scheduler.isTicking());
+
+        Assert.assertTrue(ran.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (scheduler.isTicking()
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        Assert.assertFalse(scheduler.isTicking());
+    }
+
+    @Test
+    public void schedule_cancelled_taskNotRun() throws InterruptedException {
+        CountDownLatch ran = new CountDownLatch(1);
+
+        scheduler.schedule(1, ran::countDown).remove();
+
+        Assert.assertFalse(ran.await(
+                3 * NotificationScheduler.TICK_MILLIS, TimeUnit.MILLISECONDS));
+    }
+}
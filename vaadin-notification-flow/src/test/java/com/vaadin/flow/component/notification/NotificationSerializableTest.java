@@ -1,7 +1,19 @@
-
 package com.vaadin.flow.component.notification;
 
+import java.util.stream.Stream;
+
 import com.vaadin.flow.testutil.ClassesSerializableTest;
 
 public class NotificationSerializableTest extends ClassesSerializableTest {
+
+    @Override
+    protected Stream<String> getExcludedPatterns() {
+        // Service level infrastructure that is never stored in a session
+        return Stream.concat(super.getExcludedPatterns(), Stream.of(
+                "com\\.vaadin\\.flow\\.component\\.notification\\.NotificationDispatcher(\\$.*)?",
+                "com\\.vaadin\\.flow\\.component\\.notification\\.NotificationHtmlSanitizer(\\$.*)?",
+                "com\\.vaadin\\.flow\\.component\\.notification\\.NotificationInspector(MBean|\\$UiCounters)?",
+                "com\\.vaadin\\.flow\\.component\\.notification\\.NotificationScheduler",
+                "com\\.vaadin\\.flow\\.component\\.notification\\.TimingWheel"));
+    }
 }
@@ -0,0 +1,281 @@
+/*
+ * Copyright 2000-2019 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.notification;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.flow.component.ComponentUtil;
+import com.vaadin.flow.component.DetachEvent;
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.UIDetachedException;
+import com.vaadin.flow.dom.DomEvent;
+import com.vaadin.flow.internal.nodefeature.ElementListenerMap;
+import com.vaadin.flow.server.VaadinSession;
+import com.vaadin.flow.shared.Registration;
+
+import elemental.json.Json;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+@NotThreadSafe
+public class NotificationShowAsyncTest {
+
+    private MockVaadinSession session = new MockVaadinSession();
+    private UI ui = new UI();
+    private Set<Notification> acknowledged = new HashSet<>();
+
+    @Before
+    public void setUp() {
+        session.lock();
+        VaadinSession.setCurrent(session);
+        ui.getInternals().setSession(session);
+        UI.setCurrent(ui);
+    }
+
+    @After
+    public void tearDown() {
+        UI.setCurrent(null);
+        VaadinSession.setCurrent(null);
+        while (session.hasLock()) {
+            session.unlock();
+        }
+    }
+
+    @Test
+    public void showAsync_acknowledgedByClient_futureCompletes() {
+        CompletableFuture<Notification> opened = Notification.showAsync(ui,
+                "foo");
+        Assert.assertFalse(opened.isDone());
+
+        roundTrip();
+
+        Notification notification = opened.getNow(null);
+        Assert.assertNotNull(notification);
+        Assert.assertTrue(notification.isOpened());
+        Assert.assertFalse(notification.whenClosed().isDone());
+    }
+
+    @Test
+    public void showAsync_uiDetachedBeforeAcknowledgement_futuresFail() {
+        CompletableFuture<Notification> opened = Notification.showAsync(ui,
+                "foo");
+        session.runPendingAccessTasks();
+        Notification notification = Notification.getOpen(ui).get(0);
+        CompletableFuture<Notification> closed = notification.whenClosed();
+
+        session.removeUI(ui);
+
+        assertDetached(opened);
+        assertDetached(closed);
+    }
+
+    @Test
+    public void showAsync_uiDetachedBeforeOpening_futureFails() {
+        CompletableFuture<Notification> opened = Notification.showAsync(ui,
+                "foo");
+
+        session.removeUI(ui);
+        session.runPendingAccessTasks();
+
+        assertDetached(opened);
+    }
+
+    @Test
+    public void showAsync_closedOnServerBeforeAcknowledgement_futuresSettled() {
+        // Registers the detach listeners shared by all notifications
+        Notification first = Notification.show("first");
+        roundTrip();
+        int detachListeners = getDetachListenerCount();
+
+        CompletableFuture<Notification> opened = Notification.showAsync(ui,
+                "foo");
+        session.runPendingAccessTasks();
+        Notification notification = getOpenOtherThan(first);
+        CompletableFuture<Notification> closed = notification.whenClosed();
+        Assert.assertEquals(detachListeners + 1, getDetachListenerCount());
+
+        notification.close();
+
+        Assert.assertTrue(opened.isCancelled());
+        Assert.assertSame(notification, closed.getNow(null));
+        Assert.assertEquals(detachListeners, getDetachListenerCount());
+    }
+
+    @Test
+    public void showAsync_closedOnServerAfterAcknowledgement_detachListenerRemoved() {
+        Notification.show("first");
+        roundTrip();
+        int detachListeners = getDetachListenerCount();
+        CompletableFuture<Notification> opened = Notification.showAsync(ui,
+                "foo");
+        roundTrip();
+        Notification notification = opened.getNow(null);
+
+        notification.close();
+
+        Assert.assertTrue(notification.whenClosed().isDone());
+        Assert.assertEquals(detachListeners, getDetachListenerCount());
+    }
+
+    @Test
+    public void showAsync_droppedWhenOverloaded_futureCancelled() {
+        NotificationAdmissionController controller = NotificationAdmissionController
+                .get(null);
+        controller.setMaxDeferrals(0);
+        Registration overload = controller.addOverloadSignal(() -> true);
+        try {
+            CompletableFuture<Notification> opened = Notification
+                    .showAsync(ui, "foo");
+
+            roundTrip();
+
+            Assert.assertTrue(opened.isCancelled());
+            Assert.assertTrue(getShown().isEmpty());
+        } finally {
+            overload.remove();
+            controller.setMaxDeferrals(3);
+        }
+    }
+
+    @Test
+    public void showAsync_deferralsRunOut_futureCancelled()
+            throws InterruptedException {
+        NotificationAdmissionController controller = NotificationAdmissionController
+                .get(null);
+        Duration deferDelay = controller.getDeferDelay();
+        controller.setMaxDeferrals(1);
+        controller.setDeferDelay(Duration.ofMillis(1));
+        Registration overload = controller.addOverloadSignal(() -> true);
+        try {
+            CompletableFuture<Notification> opened = Notification
+                    .showAsync(ui, "foo");
+            roundTrip();
+            Assert.assertFalse(opened.isDone());
+
+            // The deferred opening is queued with UI.access by the scheduler
+            long deadline = System.currentTimeMillis() + 5000;
+            while (!opened.isDone()
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+                roundTrip();
+            }
+
+            Assert.assertTrue(opened.isCancelled());
+            Assert.assertTrue(getShown().isEmpty());
+        } finally {
+            overload.remove();
+            controller.setMaxDeferrals(3);
+            controller.setDeferDelay(deferDelay);
+        }
+    }
+
+    @Test
+    public void showAsync_aboveCoalescedPendingLimit_futureCancelled() {
+        Notification.setPendingLimit(ui, 1, count -> count + " more");
+        Notification.show("first");
+
+        CompletableFuture<Notification> opened = Notification.showAsync(ui,
+                "second");
+        roundTrip();
+
+        Assert.assertTrue(opened.isCancelled());
+        List<Notification> shown = getShown();
+        Assert.assertEquals(2, shown.size());
+        Assert.assertEquals("1 more", shown.get(1).getElement().getChildren()
+                .findFirst().get().getProperty("innerHTML"));
+    }
+
+    @Test
+    public void showAsync_droppedAsOldestPending_futuresSettled() {
+        Notification.setPendingLimit(ui, 1,
+                Notification.OverflowPolicy.DROP_OLDEST);
+        CompletableFuture<Notification> opened = Notification.showAsync(ui,
+                "first");
+        session.runPendingAccessTasks();
+        Notification first = Notification.getOpen(ui).get(0);
+        CompletableFuture<Notification> closed = first.whenClosed();
+
+        Notification.show("second");
+
+        Assert.assertTrue(opened.isCancelled());
+        Assert.assertSame(first, closed.getNow(null));
+    }
+
+    @Test
+    public void showAsync_openedAndClosedInSameRoundTrip_futuresSettled() {
+        CompletableFuture<Notification> opened = Notification.showAsync(ui,
+                "foo");
+        session.runPendingAccessTasks();
+        Notification notification = Notification.getOpen(ui).get(0);
+        CompletableFuture<Notification> closed = notification.whenClosed();
+
+        notification.close();
+        roundTrip();
+
+        Assert.assertTrue(opened.isCancelled());
+        Assert.assertSame(notification, closed.getNow(null));
+        Assert.assertTrue(getShown().isEmpty());
+    }
+
+    private void roundTrip() {
+        session.runPendingAccessTasks();
+        ui.getInternals().getStateTree().runExecutionsBeforeClientResponse();
+        for (Notification notification : getShown()) {
+            if (acknowledged.add(notification)) {
+                notification.getElement().getNode()
+                        .getFeature(ElementListenerMap.class)
+                        .fireEvent(new DomEvent(notification.getElement(),
+                                "opened-changed", Json.createObject()));
+            }
+        }
+    }
+
+    private List<Notification> getShown() {
+        return ui.getChildren().filter(Notification.class::isInstance)
+                .map(Notification.class::cast).filter(Notification::isOpened)
+                .collect(Collectors.toList());
+    }
+
+    private Notification getOpenOtherThan(Notification other) {
+        return Notification.getOpen(ui).stream()
+                .filter(notification -> notification != other).findFirst()
+                .get();
+    }
+
+    private int getDetachListenerCount() {
+        return ComponentUtil.getListeners(ui, DetachEvent.class).size();
+    }
+
+    private static void assertDetached(CompletableFuture<Notification> future) {
+        try {
+            future.getNow(null);
+            Assert.fail("The future should have failed");
+        } catch (CompletionException e) {
+            Assert.assertTrue(e.getCause() instanceof UIDetachedException);
+        }
+    }
+}
@@ -15,9 +15,20 @@
  */
 package com.vaadin.flow.component.notification;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -28,11 +39,27 @@ import org.junit.Before;
 import org.junit.Test;
 
 import com.vaadin.flow.component.Component;
+import com.vaadin.flow.component.ComponentUtil;
 import com.vaadin.flow.component.UI;
 import com.vaadin.flow.component.html.Div;
 import com.vaadin.flow.component.html.Label;
+import com.vaadin.flow.component.internal.PendingJavaScriptInvocation;
+import com.vaadin.flow.component.notification.Notification.OpenedChangeBatchEvent;
 import com.vaadin.flow.component.notification.Notification.Position;
+import com.vaadin.flow.dom.DomEvent;
 import com.vaadin.flow.dom.Element;
+import com.vaadin.flow.internal.CurrentInstance;
+import com.vaadin.flow.internal.change.MapPutChange;
+import com.vaadin.flow.internal.change.NodeChange;
+import com.vaadin.flow.internal.nodefeature.ElementListenerMap;
+import com.vaadin.flow.server.RequestHandler;
+import com.vaadin.flow.server.VaadinRequest;
+import com.vaadin.flow.shared.Registration;
+import com.vaadin.flow.shared.communication.PushMode;
+
+import elemental.json.Json;
+import elemental.json.JsonArray;
+import elemental.json.JsonObject;
 
 import javax.annotation.concurrent.NotThreadSafe;
 
@@ -211,6 +238,774 @@ public class NotificationTest {
         addDivAtIndex(1);
     }
 
+    @Test
+    public void show_poolDisabled_closedNotificationIsRemoved() {
+        Notification notification = Notification.show("foo");
+        ui.getInternals().getStateTree().runExecutionsBeforeClientResponse();
+        Assert.assertEquals(ui.getElement(),
+                notification.getElement().getParent());
+
+        closeFromClient(notification);
+
+        Assert.assertNull(notification.getElement().getParent());
+        Assert.assertNotSame(notification, Notification.show("bar"));
+    }
+
+    @Test
+    public void show_poolEnabled_closedNotificationIsReused() {
+        Notification.setPoolCapacity(ui, 1);
+
+        Notification notification = Notification.show("foo", 1000,
+                Position.TOP_END);
+        notification.addThemeVariants(NotificationVariant.LUMO_ERROR);
+        ui.getInternals().getStateTree().runExecutionsBeforeClientResponse();
+
+        closeFromClient(notification);
+        Assert.assertEquals(ui.getElement(),
+                notification.getElement().getParent());
+
+        Notification reused = Notification.show("bar");
+        Assert.assertSame(notification, reused);
+        Assert.assertTrue(reused.isOpened());
+        Assert.assertEquals(Position.BOTTOM_START, reused.getPosition());
+        Assert.assertEquals(5000, reused.getDuration());
+        Assert.assertNull(reused.getElement().getAttribute("theme"));
+        Assert.assertEquals("bar", reused.getElement().getChildren()
+                .findFirst().get().getProperty("innerHTML"));
+    }
+
+    @Test
+    public void setPoolCapacity_zero_idleNotificationsAreRemoved() {
+        Notification.setPoolCapacity(ui, 2);
+        Notification notification = Notification.show("foo");
+        ui.getInternals().getStateTree().runExecutionsBeforeClientResponse();
+        closeFromClient(notification);
+
+        Notification.setPoolCapacity(ui, 0);
+
+        Assert.assertNull(notification.getElement().getParent());
+        Assert.assertNotSame(notification, Notification.show("bar"));
+    }
+
+    @Test
+    public void showAsync_uiWithoutSession_futureFails() {
+        CompletableFuture<Notification> future = Notification
+                .showAsync(new UI(), "foo");
+
+        Assert.assertTrue(future.isCompletedExceptionally());
+    }
+
+    @Test
+    public void whenClosed_closedFromClient_futureCompletes() {
+        Notification notification = Notification.show("foo");
+        CompletableFuture<Notification> closed = notification.whenClosed();
+        Assert.assertFalse(closed.isDone());
+
+        closeFromClient(notification);
+
+        Assert.assertSame(notification, closed.getNow(null));
+    }
+
+    @Test
+    public void whenClosed_openedAndClosedInSameRoundTrip_futureCompletes() {
+        Notification notification = new Notification("foo");
+        CompletableFuture<Notification> closed = notification.whenClosed();
+
+        notification.open();
+        notification.close();
+        ui.getInternals().getStateTree().runExecutionsBeforeClientResponse();
+
+        Assert.assertSame(notification, closed.getNow(null));
+        Assert.assertNull(notification.getElement().getParent());
+    }
+
+    @Test
+    public void open_overloaded_onlyCriticalNotificationIsOpened() {
+        NotificationAdmissionController controller = NotificationAdmissionController
+                .get(null);
+        controller.setMaxDeferrals(0);
+        Registration overload = controller.addOverloadSignal(() -> true);
+        try {
+            Notification low = new Notification("low");
+            low.setPriority(Notification.Priority.LOW);
+            Notification normal = new Notification("normal");
+            Notification critical = new Notification("critical");
+            critical.setPriority(Notification.Priority.CRITICAL);
+
+            low.open();
+            normal.open();
+            critical.open();
+
+            Assert.assertFalse(low.isOpened());
+            Assert.assertFalse(normal.isOpened());
+            Assert.assertTrue(critical.isOpened());
+        } finally {
+            overload.remove();
+            controller.setMaxDeferrals(3);
+        }
+    }
+
+    @Test
+    public void open_lowPriorityDroppedWhenOverloaded_whenClosedCompletes() {
+        NotificationAdmissionController controller = NotificationAdmissionController
+                .get(null);
+        Registration overload = controller.addOverloadSignal(() -> true);
+        try {
+            Notification notification = new Notification("low");
+            notification.setPriority(Notification.Priority.LOW);
+            CompletableFuture<Notification> closed = notification
+                    .whenClosed();
+
+            notification.open();
+
+            Assert.assertFalse(notification.isOpened());
+            Assert.assertSame(notification, closed.getNow(null));
+        } finally {
+            overload.remove();
+        }
+    }
+
+    @Test
+    public void setPendingLimit_dropNewest_notificationAboveLimitIsNotOpened() {
+        Notification.setPendingLimit(ui, 1,
+                Notification.OverflowPolicy.DROP_NEWEST);
+
+        Notification first = Notification.show("first");
+        Notification second = Notification.show("second");
+
+        Assert.assertTrue(first.isOpened());
+        Assert.assertFalse(second.isOpened());
+
+        ui.getInternals().getStateTree().runExecutionsBeforeClientResponse();
+        acknowledgeFromClient(first);
+
+        Assert.assertTrue(Notification.show("third").isOpened());
+    }
+
+    @Test
+    public void setPendingLimit_dropNewest_whenClosedCompletes() {
+        Notification.setPendingLimit(ui, 1,
+                Notification.OverflowPolicy.DROP_NEWEST);
+        Notification.show("first");
+        Notification second = new Notification("second");
+        CompletableFuture<Notification> closed = second.whenClosed();
+
+        second.open();
+
+        Assert.assertFalse(second.isOpened());
+        Assert.assertSame(second, closed.getNow(null));
+    }
+
+    @Test
+    public void setPendingLimit_pendingNotificationDetached_slotIsReleased() {
+        Notification.setPendingLimit(ui, 1,
+                Notification.OverflowPolicy.DROP_NEWEST);
+        Notification first = new Notification("first");
+        ui.add(first);
+        first.open();
+
+        ui.remove(first);
+
+        Assert.assertTrue(Notification.show("second").isOpened());
+    }
+
+    @Test
+    public void setPendingLimit_dropOldest_oldestNotificationIsClosed() {
+        Notification.setPendingLimit(ui, 1,
+                Notification.OverflowPolicy.DROP_OLDEST);
+
+        Notification first = Notification.show("first");
+        Notification second = Notification.show("second");
+
+        Assert.assertFalse(first.isOpened());
+        Assert.assertTrue(second.isOpened());
+
+        ui.getInternals().getStateTree().runExecutionsBeforeClientResponse();
+        Assert.assertNull(first.getElement().getParent());
+    }
+
+    @Test
+    public void setPendingLimit_dropOldest_whenClosedOfOldestCompletes() {
+        Notification.setPendingLimit(ui, 1,
+                Notification.OverflowPolicy.DROP_OLDEST);
+        Notification first = Notification.show("first");
+        CompletableFuture<Notification> closed = first.whenClosed();
+
+        Notification.show("second");
+
+        Assert.assertSame(first, closed.getNow(null));
+    }
+
+    @Test
+    public void setPendingLimit_coalesce_summaryCountsNotificationsAboveLimit() {
+        Notification.setPendingLimit(ui, 1, count -> "+" + count);
+
+        Notification.show("first");
+        Notification second = Notification.show("second");
+        Notification.show("third");
+        ui.getInternals().getStateTree().runExecutionsBeforeClientResponse();
+
+        Assert.assertFalse(second.isOpened());
+        List<Notification> opened = ui.getChildren()
+                .filter(Notification.class::isInstance)
+                .map(Notification.class::cast).filter(Notification::isOpened)
+                .collect(Collectors.toList());
+        Assert.assertEquals(2, opened.size());
+        Assert.assertEquals("+2", opened.get(1).getElement().getChildren()
+                .findFirst().get().getProperty("innerHTML"));
+    }
+
+    @Test
+    public void getOpen_notificationsOutsideUiChildren_areRegistered() {
+        Div parent = new Div();
+        ui.add(parent);
+        Notification nested = new Notification("nested");
+        parent.add(nested);
+        nested.open();
+        Notification shown = Notification.show("shown");
+
+        Assert.assertEquals(2, Notification.getOpenCount(ui));
+        Assert.assertThat(Notification.getOpen(ui),
+                CoreMatchers.hasItems(nested, shown));
+
+        closeFromClient(nested);
+        Assert.assertEquals(Arrays.asList(shown), Notification.getOpen(ui));
+    }
+
+    @Test
+    public void findOpen_idSetAfterOpening_notificationIsFound() {
+        Notification notification = Notification.show("foo");
+        Assert.assertFalse(Notification.findOpen(ui, "foo").isPresent());
+
+        notification.setId("foo");
+        Assert.assertSame(notification,
+                Notification.findOpen(ui, "foo").get());
+
+        notification.close();
+        Assert.assertFalse(Notification.findOpen(ui, "foo").isPresent());
+    }
+
+    @Test
+    public void closeAll_allOpenNotificationsAreClosed() {
+        Notification first = Notification.show("first");
+        Notification second = new Notification("second");
+        second.open();
+
+        Notification.closeAll(ui);
+
+        Assert.assertFalse(first.isOpened());
+        Assert.assertFalse(second.isOpened());
+        Assert.assertEquals(0, Notification.getOpenCount(ui));
+    }
+
+    @Test
+    public void closeAll_otherUiIsCurrent_notificationsOfGivenUiAreClosed() {
+        Notification notification = Notification.show("foo");
+        UI other = new UI();
+        UI.setCurrent(other);
+        Notification otherNotification = Notification.show("bar");
+
+        Notification.closeAll(ui);
+
+        Assert.assertFalse(notification.isOpened());
+        Assert.assertEquals(0, Notification.getOpenCount(ui));
+        Assert.assertTrue(otherNotification.isOpened());
+        Assert.assertEquals(1, Notification.getOpenCount(other));
+    }
+
+    @Test
+    public void closeAll_noCurrentUi_notificationsAreClosed() {
+        Notification notification = Notification.show("foo");
+        UI.setCurrent(null);
+
+        Notification.closeAll(ui);
+
+        Assert.assertFalse(notification.isOpened());
+        Assert.assertEquals(0, Notification.getOpenCount(ui));
+    }
+
+    @Test
+    public void open_modulesAreLoaded() {
+        ui.getInternals().dumpPendingJavaScriptInvocations();
+
+        new Notification("foo").open();
+
+        Assert.assertEquals(1, countModuleLoads());
+    }
+
+    @Test
+    public void open_secondNotification_modulesNotLoadedAgain() {
+        new Notification("foo").open();
+        ui.getInternals().dumpPendingJavaScriptInvocations();
+
+        new Notification("bar").open();
+
+        Assert.assertEquals(0, countModuleLoads());
+    }
+
+    @Test
+    public void setText_openNotificationUpdatedTwice_renderedOnce() {
+        Notification notification = new Notification("foo");
+        notification.open();
+        notification.setText("bar");
+        notification.setText("baz");
+        notification.add(new Div());
+
+        ui.getInternals().getStateTree().runExecutionsBeforeClientResponse();
+
+        Assert.assertEquals(1, ui.getInternals()
+                .dumpPendingJavaScriptInvocations().stream()
+                .filter(invocation -> invocation.getInvocation()
+                        .getExpression().contains("this.render()"))
+                .count());
+    }
+
+    @Test
+    public void setText_closedNotification_notRendered() {
+        Notification notification = new Notification("foo");
+        ui.add(notification);
+        notification.setText("bar");
+
+        ui.getInternals().getStateTree().runExecutionsBeforeClientResponse();
+
+        Assert.assertFalse(ui.getInternals()
+                .dumpPendingJavaScriptInvocations().stream()
+                .anyMatch(invocation -> invocation.getInvocation()
+                        .getExpression().contains("this.render()")));
+    }
+
+    @Test
+    public void addOpenedChangeBatchListener_oneEventPerRoundTrip() {
+        List<OpenedChangeBatchEvent> events = new ArrayList<>();
+        Notification.addOpenedChangeBatchListener(ui, events::add);
+
+        Notification first = Notification.show("first");
+        Notification second = Notification.show("second");
+        ui.getInternals().getStateTree().runExecutionsBeforeClientResponse();
+
+        Assert.assertEquals(1, events.size());
+        Assert.assertEquals(Arrays.asList(first, second),
+                events.get(0).getOpened());
+        Assert.assertTrue(events.get(0).getClosed().isEmpty());
+        Assert.assertFalse(events.get(0).isFromClient());
+
+        fireBatchedChanges(change(first, true), change(second, false));
+        ui.getInternals().getStateTree().runExecutionsBeforeClientResponse();
+
+        Assert.assertEquals(2, events.size());
+        Assert.assertTrue(events.get(1).getOpened().isEmpty());
+        Assert.assertEquals(Arrays.asList(second), events.get(1).getClosed());
+        Assert.assertTrue(events.get(1).isFromClient());
+        Assert.assertFalse(second.isOpened());
+    }
+
+    @Test
+    public void addOpenedChangeBatchListener_openedNotificationsDelegateToUi() {
+        Notification before = Notification.show("before");
+        Notification.addOpenedChangeBatchListener(ui, event -> {
+        });
+
+        Notification after = Notification.show("after");
+
+        Assert.assertFalse(before.getElement()
+                .hasAttribute(Notification.OPENED_CHANGE_BATCH_ATTRIBUTE));
+        Assert.assertTrue(after.getElement()
+                .hasAttribute(Notification.OPENED_CHANGE_BATCH_ATTRIBUTE));
+        Assert.assertEquals(1, OpenedChangeDelegation.get(ui).size());
+    }
+
+    @Test
+    public void addOpenedChangeBatchListener_clientAcknowledgesInBatch_futuresCompleted() {
+        Notification.addOpenedChangeBatchListener(ui, event -> {
+        });
+        Notification first = new Notification("first", 0);
+        CompletableFuture<Notification> closed = first.whenClosed();
+        first.open();
+        Notification second = Notification.show("second");
+        ui.getInternals().getStateTree().runExecutionsBeforeClientResponse();
+
+        fireBatchedChanges(change(first, false), change(second, true));
+
+        Assert.assertFalse(first.isOpened());
+        Assert.assertTrue(closed.isDone());
+        Assert.assertTrue(second.isOpened());
+    }
+
+    @Test
+    public void addOpenedChangeBatchListener_closedOnClient_openedNotSentBack() {
+        Notification.addOpenedChangeBatchListener(ui, event -> {
+        });
+        Notification notification = new Notification("foo", 0);
+        ui.add(notification);
+        notification.open();
+        ui.getInternals().getStateTree().runExecutionsBeforeClientResponse();
+        ui.getInternals().getStateTree().collectChanges(change -> {
+        });
+
+        fireBatchedChanges(change(notification, false));
+
+        List<NodeChange> changes = new ArrayList<>();
+        ui.getInternals().getStateTree().collectChanges(changes::add);
+        Assert.assertFalse(notification.isOpened());
+        Assert.assertFalse(changes.stream()
+                .filter(MapPutChange.class::isInstance)
+                .map(MapPutChange.class::cast)
+                .anyMatch(change -> "opened".equals(change.getKey())));
+    }
+
+    @Test
+    public void addOpenedChangeBatchListener_detached_noLongerDelegated() {
+        Notification.addOpenedChangeBatchListener(ui, event -> {
+        });
+        Notification notification = Notification.show("foo");
+        ui.getInternals().getStateTree().runExecutionsBeforeClientResponse();
+        JsonObject change = change(notification, false);
+
+        ui.remove(notification);
+        fireBatchedChanges(change);
+
+        Assert.assertFalse(notification.getElement()
+                .hasAttribute(Notification.OPENED_CHANGE_BATCH_ATTRIBUTE));
+        Assert.assertEquals(0, OpenedChangeDelegation.get(ui).size());
+        Assert.assertTrue(notification.isOpened());
+    }
+
+    @Test
+    public void addOpenedChangeBatchListener_noTransitions_noEvent() {
+        List<OpenedChangeBatchEvent> events = new ArrayList<>();
+        Notification.addOpenedChangeBatchListener(ui, events::add);
+
+        ui.getInternals().getStateTree().runExecutionsBeforeClientResponse();
+
+        Assert.assertTrue(events.isEmpty());
+    }
+
+    @Test
+    public void setLazyClose_closedOnClient_cleanedUpOnBatchAcknowledgement() {
+        Notification notification = new Notification("foo", 1000);
+        notification.setLazyClose(true);
+        notification.open();
+        ui.getInternals().getStateTree().runExecutionsBeforeClientResponse();
+        CompletableFuture<Notification> closed = notification.whenClosed();
+        String id = notification.getElement().getAttribute("lazy-close");
+
+        JsonObject eventData = Json.createObject();
+        JsonArray ids = Json.createArray();
+        ids.set(0, id);
+        eventData.put("event.detail", ids);
+        ui.getElement().getNode().getFeature(ElementListenerMap.class)
+                .fireEvent(new DomEvent(ui.getElement(),
+                        "vaadin-notification-lazy-closed", eventData));
+
+        Assert.assertFalse(notification.isOpened());
+        Assert.assertFalse(notification.getParent().isPresent());
+        Assert.assertTrue(closed.isDone());
+    }
+
+    @Test
+    public void setLazyClose_closedOnServer_cleanedUpOnNextOpen() {
+        Notification notification = new Notification("foo", 1000);
+        notification.setLazyClose(true);
+        notification.open();
+        ui.getInternals().getStateTree().runExecutionsBeforeClientResponse();
+
+        notification.close();
+        Assert.assertTrue(notification.getParent().isPresent());
+
+        Notification.show("bar");
+        Assert.assertFalse(notification.getParent().isPresent());
+    }
+
+    @Test
+    public void setLazyClose_closedOnServer_cleanedUpOnNextRequest()
+            throws IOException {
+        MockVaadinSession session = new MockVaadinSession();
+        session.lock();
+        try {
+            ui.getInternals().setSession(session);
+            Notification notification = new Notification("foo", 1000);
+            notification.setLazyClose(true);
+            notification.open();
+            ui.getInternals().getStateTree()
+                    .runExecutionsBeforeClientResponse();
+
+            notification.close();
+            Assert.assertTrue(notification.getParent().isPresent());
+
+            for (RequestHandler handler : session.getRequestHandlers()) {
+                Assert.assertFalse(
+                        handler.handleRequest(session, null, null));
+            }
+            Assert.assertFalse(notification.getParent().isPresent());
+            Assert.assertEquals(0, LazyCloseTracker.get(ui).size());
+        } finally {
+            session.unlock();
+        }
+    }
+
+    @Test
+    public void setLazyClose_uiDetached_requestHandlerRemoved() {
+        MockVaadinSession session = new MockVaadinSession();
+        session.lock();
+        try {
+            ui.getInternals().setSession(session);
+            Notification notification = new Notification("foo", 1000);
+            notification.setLazyClose(true);
+            notification.open();
+            Assert.assertEquals(1, session.getRequestHandlers().size());
+
+            session.removeUI(ui);
+
+            Assert.assertTrue(session.getRequestHandlers().isEmpty());
+        } finally {
+            session.unlock();
+        }
+    }
+
+    @Test
+    public void setLazyCloseBatchInterval_intervalSentToClient() {
+        ui.getInternals().dumpPendingJavaScriptInvocations();
+
+        Notification.setLazyCloseBatchInterval(ui, Duration.ofSeconds(2));
+
+        List<Object> intervals = ui.getInternals()
+                .dumpPendingJavaScriptInvocations().stream()
+                .map(PendingJavaScriptInvocation::getInvocation)
+                .filter(invocation -> invocation.getExpression()
+                        .contains("notificationLazyClose.batchTimeout"))
+                .map(invocation -> (Object) invocation.getParameters().get(0))
+                .collect(Collectors.toList());
+        Assert.assertEquals(Arrays.asList(2000L), intervals);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setLazyCloseBatchInterval_negative_throws() {
+        Notification.setLazyCloseBatchInterval(ui, Duration.ofMillis(-1));
+    }
+
+    @Test
+    public void setDelivery_piggybackWithPush_openedWithNextResponse() {
+        ui.getPushConfiguration().setPushMode(PushMode.AUTOMATIC);
+        Notification first = new Notification("first");
+        first.setDelivery(Notification.Delivery.PIGGYBACK);
+        Notification second = new Notification("second");
+        second.setDelivery(Notification.Delivery.PIGGYBACK);
+
+        first.open();
+        second.open();
+        Assert.assertFalse(first.isOpened());
+        Assert.assertFalse(second.isOpened());
+
+        ui.getInternals().getStateTree().runExecutionsBeforeClientResponse();
+        Assert.assertTrue(first.isOpened());
+        Assert.assertTrue(second.isOpened());
+        Assert.assertTrue(first.getParent().isPresent());
+    }
+
+    @Test
+    public void setDelivery_piggybackClosedBeforeResponse_notOpened() {
+        ui.getPushConfiguration().setPushMode(PushMode.AUTOMATIC);
+        Notification notification = new Notification("foo");
+        notification.setDelivery(Notification.Delivery.PIGGYBACK);
+
+        notification.open();
+        notification.close();
+        ui.getInternals().getStateTree().runExecutionsBeforeClientResponse();
+
+        Assert.assertFalse(notification.isOpened());
+    }
+
+    @Test
+    public void setDelivery_piggybackWithoutPush_openedRightAway() {
+        Notification notification = new Notification("foo");
+        notification.setDelivery(Notification.Delivery.PIGGYBACK);
+
+        notification.open();
+
+        Assert.assertTrue(notification.isOpened());
+    }
+
+    @Test
+    public void setDelivery_piggybackDeserialized_windowTimerRestarted()
+            throws IOException, ClassNotFoundException {
+        ui.getPushConfiguration().setPushMode(PushMode.AUTOMATIC);
+        Notification notification = new Notification("foo");
+        notification.setDelivery(Notification.Delivery.PIGGYBACK);
+        notification.open();
+        PiggybackQueue queue = PiggybackQueue.get(ui);
+
+        PiggybackQueue deserialized = serializeAndDeserialize(queue);
+        queue.flush();
+        ComponentUtil.setData(ui, PiggybackQueue.class, deserialized);
+        Assert.assertFalse(deserialized.hasWindowTimer());
+
+        Assert.assertSame(deserialized, PiggybackQueue.get(ui));
+        Assert.assertTrue(deserialized.hasWindowTimer());
+        deserialized.flush();
+    }
+
+    @Test
+    public void setDelivery_immediateWithPushOutsideRequest_pushed() {
+        AtomicInteger pushes = new AtomicInteger();
+        useUiCountingPushes(pushes);
+        ui.getPushConfiguration().setPushMode(PushMode.AUTOMATIC);
+        Notification notification = new Notification("foo");
+        notification.setDelivery(Notification.Delivery.IMMEDIATE);
+
+        notification.open();
+
+        Assert.assertTrue(notification.isOpened());
+        Assert.assertEquals(1, pushes.get());
+    }
+
+    @Test
+    public void setDelivery_immediateWithoutPush_notPushed() {
+        AtomicInteger pushes = new AtomicInteger();
+        useUiCountingPushes(pushes);
+        Notification notification = new Notification("foo");
+        notification.setDelivery(Notification.Delivery.IMMEDIATE);
+
+        notification.open();
+
+        Assert.assertTrue(notification.isOpened());
+        Assert.assertEquals(0, pushes.get());
+    }
+
+    @Test
+    public void setDelivery_immediateDuringRequest_notPushed() {
+        AtomicInteger pushes = new AtomicInteger();
+        useUiCountingPushes(pushes);
+        ui.getPushConfiguration().setPushMode(PushMode.AUTOMATIC);
+        Notification notification = new Notification("foo");
+        notification.setDelivery(Notification.Delivery.IMMEDIATE);
+        VaadinRequest request = (VaadinRequest) Proxy.newProxyInstance(
+                VaadinRequest.class.getClassLoader(),
+                new Class<?>[] { VaadinRequest.class },
+                (proxy, method, args) -> null);
+        CurrentInstance.set(VaadinRequest.class, request);
+        try {
+            notification.open();
+        } finally {
+            CurrentInstance.set(VaadinRequest.class, null);
+        }
+
+        Assert.assertTrue(notification.isOpened());
+        Assert.assertEquals(0, pushes.get());
+    }
+
+    @Test
+    public void setDeliverBy_deadlinePassed_notOpened() {
+        Notification notification = new Notification("foo", 5000);
+        notification.setDeliverBy(Instant.now().minusSeconds(1));
+        CompletableFuture<Notification> closed = notification.whenClosed();
+
+        notification.open();
+
+        Assert.assertFalse(notification.isOpened());
+        Assert.assertSame(notification, closed.getNow(null));
+    }
+
+    @Test
+    public void setDeliverBy_deadlinePassedWhileQueued_cancelledBeforeSending()
+            throws InterruptedException {
+        ui.getPushConfiguration().setPushMode(PushMode.AUTOMATIC);
+        Notification notification = new Notification("foo", 5000);
+        notification.setDelivery(Notification.Delivery.PIGGYBACK);
+        notification.setDeliverBy(Instant.now().plusMillis(20));
+        CompletableFuture<Notification> closed = notification.whenClosed();
+
+        notification.open();
+        Thread.sleep(50);
+        ui.getInternals().getStateTree().runExecutionsBeforeClientResponse();
+
+        Assert.assertFalse(notification.isOpened());
+        Assert.assertFalse(notification.getParent().isPresent());
+        Assert.assertTrue(closed.isDone());
+    }
+
+    @Test
+    public void setDeliverBy_delayedDelivery_durationIsReduced()
+            throws InterruptedException {
+        ui.getPushConfiguration().setPushMode(PushMode.AUTOMATIC);
+        Notification notification = new Notification("foo", 5000);
+        notification.setDelivery(Notification.Delivery.PIGGYBACK);
+        notification.setDeliverBy(Instant.now().plusSeconds(60));
+
+        notification.open();
+        Thread.sleep(50);
+        ui.getInternals().getStateTree().runExecutionsBeforeClientResponse();
+
+        Assert.assertTrue(notification.isOpened());
+        int duration = notification.getDuration();
+        Assert.assertTrue(duration > 0 && duration <= 4950);
+
+        closeFromClient(notification);
+        Assert.assertEquals(5000, notification.getDuration());
+    }
+
+    private void useUiCountingPushes(AtomicInteger pushes) {
+        ui = new UI() {
+            @Override
+            public void push() {
+                pushes.incrementAndGet();
+            }
+        };
+        UI.setCurrent(ui);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T serializeAndDeserialize(T object)
+            throws IOException, ClassNotFoundException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(object);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(
+                new ByteArrayInputStream(bytes.toByteArray()))) {
+            return (T) in.readObject();
+        }
+    }
+
+    private long countModuleLoads() {
+        return ui.getInternals().dumpPendingJavaScriptInvocations().stream()
+                .filter(invocation -> invocation.getInvocation()
+                        .getExpression().contains("notificationLoader.load"))
+                .count();
+    }
+
+    private void acknowledgeFromClient(Notification notification) {
+        notification.getElement().getNode()
+                .getFeature(ElementListenerMap.class)
+                .fireEvent(new DomEvent(notification.getElement(),
+                        "opened-changed", Json.createObject()));
+    }
+
+    private void closeFromClient(Notification notification) {
+        notification.getElement().setProperty("opened", false);
+        acknowledgeFromClient(notification);
+    }
+
+    private static JsonObject change(Notification notification,
+            boolean opened) {
+        JsonObject change = Json.createObject();
+        change.put("id", notification.getElement()
+                .getAttribute(Notification.OPENED_CHANGE_BATCH_ATTRIBUTE));
+        change.put("opened", opened);
+        return change;
+    }
+
+    private void fireBatchedChanges(JsonObject... changes) {
+        JsonArray detail = Json.createArray();
+        for (JsonObject change : changes) {
+            detail.set(detail.length(), change);
+        }
+        JsonObject eventData = Json.createObject();
+        eventData.put("event.detail", detail);
+        ui.getElement().getNode().getFeature(ElementListenerMap.class)
+                .fireEvent(new DomEvent(ui.getElement(),
+                        "vaadin-notification-opened-changes", eventData));
+    }
+
     private void addDivAtIndex(int index) {
         Notification notification = new Notification();
 
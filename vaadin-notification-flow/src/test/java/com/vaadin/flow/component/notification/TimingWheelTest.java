@@ -0,0 +1,113 @@
+/*
+ * Copyright 2000-2019 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.notification;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.vaadin.flow.component.notification.TimingWheel.Timeout;
+
+public class TimingWheelTest {
+
+    private TimingWheel wheel = new TimingWheel();
+
+    @Test
+    public void add_expiresExactlyAtDeadline() {
+        long[] deadlines = { 1, 5, 63, 64, 65, 127, 4095, 4096, 4097, 300_000,
+                17_000_000 };
+        Map<Timeout, Long> timeouts = new HashMap<>();
+        for (long deadline : deadlines) {
+            Timeout timeout = new Timeout(deadline, () -> {
+            });
+            wheel.add(timeout);
+            timeouts.put(timeout, deadline);
+        }
+
+        advanceAndAssertDeadlines(timeouts, 17_000_000);
+        Assert.assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void add_randomDeadlinesAfterAdvancing_expireAtDeadline() {
+        Random random = new Random(42);
+        Map<Timeout, Long> timeouts = new HashMap<>();
+        for (int i = 0; i < 50; i++) {
+            wheel.advance();
+        }
+        for (int i = 0; i < 1000; i++) {
+            long deadline = wheel.getCurrentTick() + 1
+                    + random.nextInt(i % 2 == 0 ? 100 : 300_000);
+            Timeout timeout = new Timeout(deadline, () -> {
+            });
+            wheel.add(timeout);
+            timeouts.put(timeout, deadline);
+        }
+
+        advanceAndAssertDeadlines(timeouts, 400_000);
+        Assert.assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void add_deadlineInThePast_expiresOnNextTick() {
+        wheel.advance();
+        wheel.advance();
+        Timeout timeout = new Timeout(1, () -> {
+        });
+        wheel.add(timeout);
+
+        List<Timeout> expired = wheel.advance();
+        Assert.assertEquals(1, expired.size());
+        Assert.assertSame(timeout, expired.get(0));
+    }
+
+    @Test
+    public void remove_timeoutDoesNotExpire() {
+        Timeout removed = new Timeout(100, () -> {
+        });
+        Timeout kept = new Timeout(100, () -> {
+        });
+        wheel.add(removed);
+        wheel.add(kept);
+
+        Assert.assertTrue(wheel.remove(removed));
+        Assert.assertFalse(wheel.remove(removed));
+        Assert.assertEquals(1, wheel.size());
+
+        List<Timeout> expired = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            expired.addAll(wheel.advance());
+        }
+        Assert.assertEquals(1, expired.size());
+        Assert.assertSame(kept, expired.get(0));
+    }
+
+    private void advanceAndAssertDeadlines(Map<Timeout, Long> timeouts,
+            long lastTick) {
+        while (wheel.getCurrentTick() < lastTick) {
+            for (Timeout timeout : wheel.advance()) {
+                Assert.assertEquals(timeouts.remove(timeout).longValue(),
+                        wheel.getCurrentTick());
+            }
+        }
+        Assert.assertTrue("Not all timeouts expired", timeouts.isEmpty());
+    }
+}